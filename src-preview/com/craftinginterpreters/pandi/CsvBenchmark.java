@@ -0,0 +1,91 @@
+package com.craftinginterpreters.pandi;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+//Prints how many MB/s the CSV reader gets through:
+//  - only finding the records and fields,
+//  - reading every field as a number (or a string when it is not one) as well,
+//  - a pandi script that adds up a column.
+// Usage: CsvBenchmark [file.csv]  (without one a file of 1M records is made and deleted after)
+// The file is read once before measuring, so the numbers are for a file in the page cache.
+public class CsvBenchmark {
+    private static final int RUNS = 5;
+
+    private static final String SCRIPT = """
+            var it = csv(PATH);
+            var sum = 0;
+            var row = it.next();
+            while (row != nil) {
+              var n = row.number(1);
+              if (n != nil) sum = sum + n;
+              row = it.next();
+            }
+            it.close();
+            """;
+
+    public static void main(String[] args) throws IOException {
+        Path path = args.length > 0 ? Path.of(args[0]) : generate();
+        try {
+            double megabytes = Files.size(path) / 1e6;
+            String name = path.toString();
+
+            System.out.printf("fields: %.0f MB/s%n", megabytes / measure(() -> scan(name, false)));
+            System.out.printf("numbers: %.0f MB/s%n", megabytes / measure(() -> scan(name, true)));
+            String source = "var PATH = \"" + name.replace("\\", "\\\\") + "\";\n" + SCRIPT;
+            System.out.printf("script: %.0f MB/s%n", megabytes / measure(() -> script(source)));
+        } finally {
+            if (args.length == 0) Files.delete(path);
+        }
+    }
+
+    //Best seconds of the runs, after a run to warm up
+    private static double measure(Runnable run) {
+        run.run();
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            run.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1e9;
+    }
+
+    private static void scan(String path, boolean numbers) {
+        pandiCsv csv = new pandiCsv(MappedFile.open(path));
+        long fields = 0;
+        for (pandiRow row = csv.next(); row != null; row = csv.next()) {
+            int count = row.size();
+            for (int i = 0; numbers && i < count; i++) {
+                if (row.number(i) == null) row.string(i);
+            }
+            fields += count;
+        }
+        csv.close();
+        if (fields == 0) System.out.println("The file has no records.");
+    }
+
+    private static void script(String source) {
+        Interpreter interpreter = new Interpreter();
+        pandi.run(interpreter, source, pandi.reporter(interpreter));
+        interpreter.flush();
+    }
+
+    //id,amount,label,ratio with a quoted label now and then
+    private static Path generate() throws IOException {
+        Path path = Files.createTempFile("pandi", ".csv");
+        Random random = new Random(42);
+        try (BufferedWriter out = Files.newBufferedWriter(path)) {
+            out.write("id,amount,label,ratio\n");
+            for (int i = 0; i < 1_000_000; i++) {
+                out.write(i + "," + random.nextInt(100000) / 100.0 + ",");
+                out.write(i % 10 == 0 ? "\"item, number " + i + "\"" : "item" + i);
+                out.write("," + random.nextDouble() + "\n");
+            }
+        }
+        return path;
+    }
+}
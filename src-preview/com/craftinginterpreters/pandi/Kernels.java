@@ -0,0 +1,47 @@
+package com.craftinginterpreters.pandi;
+
+import java.lang.foreign.MemorySegment;
+
+//The loops behind Vec, over n doubles in memory segments (off the heap for a DoubleArray,
+// over the double[] of a list of numbers otherwise).
+// The destination may be one of the operands, every element is read before it is written.
+interface Kernels {
+    //dst = a + b
+    void add(MemorySegment dst, MemorySegment a, MemorySegment b, long n);
+
+    //dst = a * b
+    void mul(MemorySegment dst, MemorySegment a, MemorySegment b, long n);
+
+    //dst = a * b + c
+    void fma(MemorySegment dst, MemorySegment a, MemorySegment b, MemorySegment c, long n);
+
+    //dst = a * k
+    void scale(MemorySegment dst, MemorySegment a, double k, long n);
+
+    //dst = a, kept between low and high
+    void clamp(MemorySegment dst, MemorySegment a, double low, double high, long n);
+
+    double sum(MemorySegment a, long n);
+
+    double dot(MemorySegment a, MemorySegment b, long n);
+
+    //The smallest and biggest of n > 0 elements, NaN if there is one
+    double min(MemorySegment a, long n);
+
+    double max(MemorySegment a, long n);
+
+    //The Vector API ones when the jdk.incubator.vector module is there (--add-modules) and
+    // -Dpandi.vector is not false, plain loops otherwise. VectorKernels is looked up by name,
+    // a JVM without the module can not even load a class that mentions it.
+    static Kernels best() {
+        if (Boolean.parseBoolean(System.getProperty("pandi.vector", "true"))) {
+            try {
+                return Class.forName("com.craftinginterpreters.pandi.VectorKernels")
+                        .asSubclass(Kernels.class).getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                //Not there, or there but not usable
+            }
+        }
+        return new ScalarKernels();
+    }
+}
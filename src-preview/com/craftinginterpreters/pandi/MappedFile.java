@@ -0,0 +1,47 @@
+package com.craftinginterpreters.pandi;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.ref.Cleaner;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+//A file mapped into memory for the natives that read through it (lines(), the CSV reader).
+// The pages are read in by the OS as they are touched and are not on the Java heap, so a file
+// of many GB costs the heap nothing however far into it the reading gets.
+// Unmapped by close(), or once whatever holds it has been garbage collected.
+final class MappedFile {
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    final MemorySegment segment;
+    final long size;
+    private final Arena arena = Arena.ofShared();
+    private final Cleaner.Cleanable cleanable;
+
+    private MappedFile(FileChannel channel, long size) throws IOException {
+        this.size = size;
+        this.cleanable = CLEANER.register(this, arena::close);
+        this.segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, size, arena);
+    }
+
+    static MappedFile open(Object path) {
+        if (!(path instanceof String)) throw new RuntimeError("A path must be a string.");
+
+        try (FileChannel channel = FileChannel.open(Path.of((String) path), StandardOpenOption.READ)) {
+            //The mapping stays valid after the channel is closed
+            return new MappedFile(channel, channel.size());
+        } catch (IOException | RuntimeException e) {
+            throw Natives.cantRead(path, e);
+        }
+    }
+
+    boolean isClosed() {
+        return !arena.scope().isAlive();
+    }
+
+    void close() {
+        cleanable.clean();
+    }
+}
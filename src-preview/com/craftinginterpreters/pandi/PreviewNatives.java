@@ -0,0 +1,43 @@
+package com.craftinginterpreters.pandi;
+
+//The natives of this source tree, whose classes use java.lang.foreign, a preview API in
+// Java 21. Preview looks this class up by name, the rest of the interpreter does not know it.
+final class PreviewNatives {
+    //The other classes here are marked as using a preview API, a JVM started without
+    // --enable-preview refuses to load any of them. One is loaded now, so such a JVM fails
+    // here, where Preview expects it, rather than in the middle of a call.
+    static {
+        pandiSegment.class.getName();
+    }
+
+    private PreviewNatives() {
+    }
+
+    //The value of the global with that name
+    static Object get(String name) {
+        switch (name) {
+            //Arrays outside the Java heap, see pandiSegment
+            case "DoubleArray":
+                return new pandiNative("DoubleArray", 1,
+                        (interpreter, arguments) -> pandiDoubleArray.allocate(arguments.get(0)));
+            case "Bytes":
+                return new pandiNative("Bytes", 1,
+                        (interpreter, arguments) -> pandiBytes.allocate(arguments.get(0)));
+
+            //Vec.add(dst, a, b), Vec.sum(a) and the rest, see pandiVec
+            case "Vec":
+                return new pandiVec();
+
+            //lines(path) reads a file a line at a time, see pandiLines
+            case "lines":
+                return new pandiNative("lines", 1,
+                        (interpreter, arguments) -> new pandiLines(MappedFile.open(arguments.get(0))));
+
+            //csv(path) reads a CSV file a record at a time, see pandiCsv
+            case "csv":
+                return new pandiNative("csv", 1,
+                        (interpreter, arguments) -> new pandiCsv(MappedFile.open(arguments.get(0))));
+        }
+        throw new IllegalArgumentException("No preview native called '" + name + "'.");
+    }
+}
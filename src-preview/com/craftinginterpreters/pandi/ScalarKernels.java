@@ -0,0 +1,117 @@
+package com.craftinginterpreters.pandi;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+//One element at a time, for JVMs without the Vector API. VectorKernels does the tails of
+// its loops with these too.
+class ScalarKernels implements Kernels {
+    private static final ValueLayout.OfDouble DOUBLE = ValueLayout.JAVA_DOUBLE;
+
+    @Override
+    public void add(MemorySegment dst, MemorySegment a, MemorySegment b, long n) {
+        add(dst, a, b, 0, n);
+    }
+
+    static void add(MemorySegment dst, MemorySegment a, MemorySegment b, long from, long n) {
+        for (long i = from; i < n; i++) {
+            dst.setAtIndex(DOUBLE, i, a.getAtIndex(DOUBLE, i) + b.getAtIndex(DOUBLE, i));
+        }
+    }
+
+    @Override
+    public void mul(MemorySegment dst, MemorySegment a, MemorySegment b, long n) {
+        mul(dst, a, b, 0, n);
+    }
+
+    static void mul(MemorySegment dst, MemorySegment a, MemorySegment b, long from, long n) {
+        for (long i = from; i < n; i++) {
+            dst.setAtIndex(DOUBLE, i, a.getAtIndex(DOUBLE, i) * b.getAtIndex(DOUBLE, i));
+        }
+    }
+
+    @Override
+    public void fma(MemorySegment dst, MemorySegment a, MemorySegment b, MemorySegment c, long n) {
+        fma(dst, a, b, c, 0, n);
+    }
+
+    static void fma(MemorySegment dst, MemorySegment a, MemorySegment b, MemorySegment c,
+                    long from, long n) {
+        for (long i = from; i < n; i++) {
+            dst.setAtIndex(DOUBLE, i,
+                    Math.fma(a.getAtIndex(DOUBLE, i), b.getAtIndex(DOUBLE, i), c.getAtIndex(DOUBLE, i)));
+        }
+    }
+
+    @Override
+    public void scale(MemorySegment dst, MemorySegment a, double k, long n) {
+        scale(dst, a, k, 0, n);
+    }
+
+    static void scale(MemorySegment dst, MemorySegment a, double k, long from, long n) {
+        for (long i = from; i < n; i++) {
+            dst.setAtIndex(DOUBLE, i, a.getAtIndex(DOUBLE, i) * k);
+        }
+    }
+
+    @Override
+    public void clamp(MemorySegment dst, MemorySegment a, double low, double high, long n) {
+        clamp(dst, a, low, high, 0, n);
+    }
+
+    static void clamp(MemorySegment dst, MemorySegment a, double low, double high, long from, long n) {
+        for (long i = from; i < n; i++) {
+            dst.setAtIndex(DOUBLE, i, Math.min(Math.max(a.getAtIndex(DOUBLE, i), low), high));
+        }
+    }
+
+    @Override
+    public double sum(MemorySegment a, long n) {
+        return sum(a, 0, n);
+    }
+
+    static double sum(MemorySegment a, long from, long n) {
+        double sum = 0;
+        for (long i = from; i < n; i++) {
+            sum += a.getAtIndex(DOUBLE, i);
+        }
+        return sum;
+    }
+
+    @Override
+    public double dot(MemorySegment a, MemorySegment b, long n) {
+        return dot(a, b, 0, n);
+    }
+
+    static double dot(MemorySegment a, MemorySegment b, long from, long n) {
+        double sum = 0;
+        for (long i = from; i < n; i++) {
+            sum = Math.fma(a.getAtIndex(DOUBLE, i), b.getAtIndex(DOUBLE, i), sum);
+        }
+        return sum;
+    }
+
+    @Override
+    public double min(MemorySegment a, long n) {
+        return min(a, 0, n, Double.POSITIVE_INFINITY);
+    }
+
+    static double min(MemorySegment a, long from, long n, double min) {
+        for (long i = from; i < n; i++) {
+            min = Math.min(min, a.getAtIndex(DOUBLE, i));
+        }
+        return min;
+    }
+
+    @Override
+    public double max(MemorySegment a, long n) {
+        return max(a, 0, n, Double.NEGATIVE_INFINITY);
+    }
+
+    static double max(MemorySegment a, long from, long n, double max) {
+        for (long i = from; i < n; i++) {
+            max = Math.max(max, a.getAtIndex(DOUBLE, i));
+        }
+        return max;
+    }
+}
@@ -0,0 +1,156 @@
+package com.craftinginterpreters.pandi;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteOrder;
+
+//The Vector API ones: as many doubles at a time as the CPU's widest vectors hold, the
+// elements left over at the end go through the scalar loops.
+// sum and dot add the lanes up separately and the lanes at the end, so their rounding can
+// differ a little from adding the elements one after the other.
+// Only loaded when the jdk.incubator.vector module is there, see Kernels.best().
+// In Java 21 a vector can only be loaded from or stored into a segment on the heap when it is
+// over a byte[], and the one of a list is over its double[]: a call with a list among its
+// arrays goes through the scalar loops.
+class VectorKernels implements Kernels {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final ByteOrder ORDER = ByteOrder.nativeOrder();
+    private static final Kernels SCALAR = new ScalarKernels();
+
+    @Override
+    public void add(MemorySegment dst, MemorySegment a, MemorySegment b, long n) {
+        if (onHeap(dst, a, b)) {
+            SCALAR.add(dst, a, b, n);
+            return;
+        }
+        long bound = SPECIES.loopBound(n);
+        for (long i = 0; i < bound; i += SPECIES.length()) {
+            long offset = i * Double.BYTES;
+            load(a, offset).add(load(b, offset)).intoMemorySegment(dst, offset, ORDER);
+        }
+        ScalarKernels.add(dst, a, b, bound, n);
+    }
+
+    @Override
+    public void mul(MemorySegment dst, MemorySegment a, MemorySegment b, long n) {
+        if (onHeap(dst, a, b)) {
+            SCALAR.mul(dst, a, b, n);
+            return;
+        }
+        long bound = SPECIES.loopBound(n);
+        for (long i = 0; i < bound; i += SPECIES.length()) {
+            long offset = i * Double.BYTES;
+            load(a, offset).mul(load(b, offset)).intoMemorySegment(dst, offset, ORDER);
+        }
+        ScalarKernels.mul(dst, a, b, bound, n);
+    }
+
+    @Override
+    public void fma(MemorySegment dst, MemorySegment a, MemorySegment b, MemorySegment c, long n) {
+        if (onHeap(dst, a, b, c)) {
+            SCALAR.fma(dst, a, b, c, n);
+            return;
+        }
+        long bound = SPECIES.loopBound(n);
+        for (long i = 0; i < bound; i += SPECIES.length()) {
+            long offset = i * Double.BYTES;
+            load(a, offset).fma(load(b, offset), load(c, offset)).intoMemorySegment(dst, offset, ORDER);
+        }
+        ScalarKernels.fma(dst, a, b, c, bound, n);
+    }
+
+    @Override
+    public void scale(MemorySegment dst, MemorySegment a, double k, long n) {
+        if (onHeap(dst, a)) {
+            SCALAR.scale(dst, a, k, n);
+            return;
+        }
+        long bound = SPECIES.loopBound(n);
+        for (long i = 0; i < bound; i += SPECIES.length()) {
+            long offset = i * Double.BYTES;
+            load(a, offset).mul(k).intoMemorySegment(dst, offset, ORDER);
+        }
+        ScalarKernels.scale(dst, a, k, bound, n);
+    }
+
+    @Override
+    public void clamp(MemorySegment dst, MemorySegment a, double low, double high, long n) {
+        if (onHeap(dst, a)) {
+            SCALAR.clamp(dst, a, low, high, n);
+            return;
+        }
+        long bound = SPECIES.loopBound(n);
+        for (long i = 0; i < bound; i += SPECIES.length()) {
+            long offset = i * Double.BYTES;
+            load(a, offset).max(low).min(high).intoMemorySegment(dst, offset, ORDER);
+        }
+        ScalarKernels.clamp(dst, a, low, high, bound, n);
+    }
+
+    @Override
+    public double sum(MemorySegment a, long n) {
+        if (onHeap(a)) {
+            return SCALAR.sum(a, n);
+        }
+        long bound = SPECIES.loopBound(n);
+        DoubleVector sum = DoubleVector.zero(SPECIES);
+        for (long i = 0; i < bound; i += SPECIES.length()) {
+            sum = sum.add(load(a, i * Double.BYTES));
+        }
+        return sum.reduceLanes(VectorOperators.ADD) + ScalarKernels.sum(a, bound, n);
+    }
+
+    @Override
+    public double dot(MemorySegment a, MemorySegment b, long n) {
+        if (onHeap(a, b)) {
+            return SCALAR.dot(a, b, n);
+        }
+        long bound = SPECIES.loopBound(n);
+        DoubleVector sum = DoubleVector.zero(SPECIES);
+        for (long i = 0; i < bound; i += SPECIES.length()) {
+            long offset = i * Double.BYTES;
+            sum = load(a, offset).fma(load(b, offset), sum);
+        }
+        return sum.reduceLanes(VectorOperators.ADD) + ScalarKernels.dot(a, b, bound, n);
+    }
+
+    @Override
+    public double min(MemorySegment a, long n) {
+        if (onHeap(a)) {
+            return SCALAR.min(a, n);
+        }
+        long bound = SPECIES.loopBound(n);
+        DoubleVector min = DoubleVector.broadcast(SPECIES, Double.POSITIVE_INFINITY);
+        for (long i = 0; i < bound; i += SPECIES.length()) {
+            min = min.min(load(a, i * Double.BYTES));
+        }
+        return ScalarKernels.min(a, bound, n, min.reduceLanes(VectorOperators.MIN));
+    }
+
+    @Override
+    public double max(MemorySegment a, long n) {
+        if (onHeap(a)) {
+            return SCALAR.max(a, n);
+        }
+        long bound = SPECIES.loopBound(n);
+        DoubleVector max = DoubleVector.broadcast(SPECIES, Double.NEGATIVE_INFINITY);
+        for (long i = 0; i < bound; i += SPECIES.length()) {
+            max = max.max(load(a, i * Double.BYTES));
+        }
+        return ScalarKernels.max(a, bound, n, max.reduceLanes(VectorOperators.MAX));
+    }
+
+    private static boolean onHeap(MemorySegment... segments) {
+        for (MemorySegment segment : segments) {
+            if (!segment.isNative()) return true;
+        }
+        return false;
+    }
+
+    private static DoubleVector load(MemorySegment segment, long offset) {
+        return DoubleVector.fromMemorySegment(SPECIES, segment, offset, ORDER);
+    }
+}
@@ -0,0 +1,45 @@
+package com.craftinginterpreters.pandi;
+
+import java.lang.foreign.ValueLayout;
+
+//What Bytes(n) returns: n bytes, all 0 to start with, see pandiSegment.
+// A byte reads as a number from 0 to 255 and only those can be stored.
+class pandiBytes extends pandiSegment {
+    pandiBytes(long length) {
+        super(length, 1);
+    }
+
+    static pandiBytes allocate(Object length) {
+        return new pandiBytes(length(length, 1));
+    }
+
+    @Override
+    public Object get(Token bracket, Object index) {
+        long i = index(bracket, index);
+        try {
+            return (double) Byte.toUnsignedInt(segment.get(ValueLayout.JAVA_BYTE, i));
+        } catch (IllegalStateException e) {
+            //Freed by another thread since index() looked
+            throw freed(bracket);
+        }
+    }
+
+    @Override
+    public void set(Token bracket, Object index, Object value) {
+        long i = index(bracket, index);
+        if (!(value instanceof Double) || (double) value < 0 || (double) value > 255
+                || (double) value != Math.floor((double) value)) {
+            throw new RuntimeError(bracket, "A byte must be a whole number from 0 to 255.");
+        }
+        try {
+            segment.set(ValueLayout.JAVA_BYTE, i, (byte) (double) value);
+        } catch (IllegalStateException e) {
+            throw freed(bracket);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "<Bytes " + length + ">";
+    }
+}
@@ -0,0 +1,137 @@
+package com.craftinginterpreters.pandi;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+//What csv(path) returns: the records of a CSV file (RFC 4180) one at a time.
+//  it.next()    the next record as a row, nil after the last one
+//  it.close()   unmaps the file, rather than waiting for the iterator to be collected
+// Fields are separated by commas and records by "\n" or "\r\n". A field in double quotes can
+// hold commas, line breaks and quotes (written twice: "say ""hi"""). Empty lines are skipped.
+//
+// The file is mapped (see MappedFile) and next() only finds where the fields of the record
+// start and end. Nothing is copied out of the file until the script asks for a field, as a
+// string or straight as a number (see pandiRow).
+// next() hands out the same row every time, moved on to the next record, so a row that has
+// to be kept around has to be copied with row.toList(). One iterator is for one thread.
+class pandiCsv implements pandiObject {
+    private final MappedFile file;
+    private final MemorySegment segment;
+    private final long size;
+    private long position = 0;
+    private final pandiRow row;
+
+    private final pandiNative next = new pandiNative("next", 0, (interpreter, arguments) -> next());
+    private final pandiNative close = new pandiNative("close", 0, (interpreter, arguments) -> {
+        close();
+        return null;
+    });
+
+    pandiCsv(MappedFile file) {
+        this.file = file;
+        this.segment = file.segment;
+        this.size = file.size;
+        this.row = new pandiRow(file);
+    }
+
+    pandiRow next() {
+        if (file.isClosed()) throw new RuntimeError("Can't read records after close().");
+
+        //Empty lines do not make records
+        while (position < size && isLineBreak(position)) {
+            position += byteAt(position) == '\r' ? 2 : 1;
+        }
+        if (position >= size) return null;
+
+        row.clear();
+        long at = position;
+        for (;;) {
+            at = byteAt(at) == '"' ? quotedField(at) : field(at);
+
+            //'at' is on what ended the field
+            if (at >= size) break;
+            if (byteAt(at) == ',') {
+                at++;
+                if (at < size) continue;
+
+                //A comma at the very end leaves an empty field after it
+                row.add(at, at, false);
+                break;
+            }
+            at += byteAt(at) == '\r' ? 2 : 1;
+            break;
+        }
+        position = at;
+        return row;
+    }
+
+    //From 'at' up to the next comma or line break, returns where it ended
+    private long field(long at) {
+        long end = at;
+        while (end < size) {
+            byte b = byteAt(end);
+            if (b == ',' || b == '\n' || (b == '\r' && isLineBreak(end))) break;
+            end++;
+        }
+        row.add(at, end, false);
+        return end;
+    }
+
+    //The field between the quote at 'at' and the quote closing it
+    private long quotedField(long at) {
+        long start = at + 1;
+        boolean escaped = false;
+        long end = start;
+        for (;;) {
+            if (end >= size) throw malformed(at, "A quoted field is not closed.");
+            if (byteAt(end) == '"') {
+                //Two quotes are a quote in the field, one ends it
+                if (end + 1 < size && byteAt(end + 1) == '"') {
+                    escaped = true;
+                    end += 2;
+                    continue;
+                }
+                break;
+            }
+            end++;
+        }
+        row.add(start, end, escaped);
+
+        long after = end + 1;
+        if (after < size && byteAt(after) != ',' && !isLineBreak(after)) {
+            throw malformed(after, "Expected a comma or the end of the line after a quoted field.");
+        }
+        return after;
+    }
+
+    private boolean isLineBreak(long at) {
+        byte b = byteAt(at);
+        return b == '\n' || (b == '\r' && at + 1 < size && byteAt(at + 1) == '\n');
+    }
+
+    private byte byteAt(long at) {
+        return segment.get(ValueLayout.JAVA_BYTE, at);
+    }
+
+    private RuntimeError malformed(long at, String message) {
+        return new RuntimeError("Malformed CSV at byte " + at + ": " + message);
+    }
+
+    void close() {
+        file.close();
+    }
+
+    @Override
+    public Object get(Token name) {
+        switch (name.lexeme) {
+            case "next": return next;
+            case "close": return close;
+        }
+        throw new RuntimeError(name, "Undefined property '" + name.lexeme + "'.");
+    }
+
+    @Override
+    public String toString() {
+        return "<csv>";
+    }
+}
@@ -0,0 +1,42 @@
+package com.craftinginterpreters.pandi;
+
+import java.lang.foreign.ValueLayout;
+
+//What DoubleArray(n) returns: n numbers, all 0 to start with, see pandiSegment.
+// Unlike a list it holds nothing but numbers and it never grows.
+class pandiDoubleArray extends pandiSegment {
+    pandiDoubleArray(long length) {
+        super(length, Double.BYTES);
+    }
+
+    static pandiDoubleArray allocate(Object length) {
+        return new pandiDoubleArray(length(length, Double.BYTES));
+    }
+
+    @Override
+    public Object get(Token bracket, Object index) {
+        long i = index(bracket, index);
+        try {
+            return segment.getAtIndex(ValueLayout.JAVA_DOUBLE, i);
+        } catch (IllegalStateException e) {
+            //Freed by another thread since index() looked
+            throw freed(bracket);
+        }
+    }
+
+    @Override
+    public void set(Token bracket, Object index, Object value) {
+        long i = index(bracket, index);
+        if (!(value instanceof Double)) throw new RuntimeError(bracket, "A DoubleArray only holds numbers.");
+        try {
+            segment.setAtIndex(ValueLayout.JAVA_DOUBLE, i, (double) value);
+        } catch (IllegalStateException e) {
+            throw freed(bracket);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "<DoubleArray " + length + ">";
+    }
+}
@@ -0,0 +1,101 @@
+package com.craftinginterpreters.pandi;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+//What lines(path) returns: the lines of a UTF-8 file, one at a time.
+//  it.next()    the next line without its "\n" (or "\r\n"), nil after the last one
+//  it.close()   unmaps the file, rather than waiting for the iterator to be collected
+// The file is mapped (see MappedFile) and only the line that next() returns gets copied out
+// of it into a string, the rest of the file is never on the heap.
+// The line is a string right away rather than a slice of the mapping decoded when it is used:
+// +, ==, print and map keys only know strings, so every line would be made into one at its
+// first use anyway, and a slice would keep the mapping alive for as long as it is kept.
+// (A CSV row is different, most of its fields are never looked at, see pandiRow.)
+// Tasks can share an iterator, every line goes to one of them.
+class pandiLines implements pandiObject {
+    //Eight bytes at a time when looking for the end of a line
+    private static final ValueLayout.OfLong WORD =
+            ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGHS = 0x8080808080808080L;
+    private static final long NEWLINES = 0x0A0A0A0A0A0A0A0AL;
+
+    private final MappedFile file;
+    private long position = 0;
+    //Where a line is copied out to be decoded, grown to the longest line so far
+    private byte[] buffer = new byte[256];
+
+    private final pandiNative next = new pandiNative("next", 0, (interpreter, arguments) -> next());
+    private final pandiNative close = new pandiNative("close", 0, (interpreter, arguments) -> {
+        close();
+        return null;
+    });
+
+    pandiLines(MappedFile file) {
+        this.file = file;
+    }
+
+    synchronized String next() {
+        if (file.isClosed()) throw new RuntimeError("Can't read lines after close().");
+        if (position >= file.size) return null;
+
+        long start = position;
+        long end = indexOfNewline(start);
+        position = end < file.size ? end + 1 : end;
+
+        //A line ending in "\r\n" loses the "\r" as well
+        if (end > start && file.segment.get(ValueLayout.JAVA_BYTE, end - 1) == '\r') end--;
+        return decode(start, end);
+    }
+
+    //The first '\n' from 'from' on, or the end of the file
+    private long indexOfNewline(long from) {
+        long size = file.size;
+        long i = from;
+        for (; i + Long.BYTES <= size; i += Long.BYTES) {
+            //The bytes that are '\n' become zero, the lowest zero byte sets the lowest high bit
+            long word = file.segment.get(WORD, i) ^ NEWLINES;
+            long found = (word - ONES) & ~word & HIGHS;
+            if (found != 0) return i + (Long.numberOfTrailingZeros(found) >>> 3);
+        }
+        for (; i < size; i++) {
+            if (file.segment.get(ValueLayout.JAVA_BYTE, i) == '\n') return i;
+        }
+        return size;
+    }
+
+    private String decode(long start, long end) {
+        long length = end - start;
+        if (length > Integer.MAX_VALUE - 8) throw new RuntimeError("Line is too long to be a string.");
+
+        if (length > buffer.length) buffer = new byte[(int) Math.max(length, buffer.length * 2L)];
+        //From the mapped pages straight into the array, no ByteBuffer in between
+        MemorySegment.copy(file.segment, ValueLayout.JAVA_BYTE, start,
+                buffer, 0, (int) length);
+        return new String(buffer, 0, (int) length, StandardCharsets.UTF_8);
+    }
+
+    //Waits for a next() another thread is in the middle of. Unmapping the file under it would
+    // fail one of the two with an IllegalStateException, this way that next() gets its line
+    // and the one after it the error for reading after close()
+    synchronized void close() {
+        file.close();
+    }
+
+    @Override
+    public Object get(Token name) {
+        switch (name.lexeme) {
+            case "next": return next;
+            case "close": return close;
+        }
+        throw new RuntimeError(name, "Undefined property '" + name.lexeme + "'.");
+    }
+
+    @Override
+    public String toString() {
+        return "<lines>";
+    }
+}
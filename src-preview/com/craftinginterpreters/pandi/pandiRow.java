@@ -0,0 +1,227 @@
+package com.craftinginterpreters.pandi;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+//A record of a CSV file, see pandiCsv.
+//  row.length        how many fields it has
+//  row[i], row.get(i) the field as a string
+//  row.number(i)     the field as a number, nil if it is not one
+//  row.toList()      the fields as a list of strings, which stays as it is
+// The row only knows where its fields are in the file. A string is made the first time the
+// field is asked for, and number() reads the digits straight from the file without one.
+class pandiRow implements pandiObject, pandiIndexable {
+    //10^0 to 10^22 are exact as doubles
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final MappedFile file;
+    private final MemorySegment segment;
+    //Where each field is in the file, and whether it has quotes written twice in it
+    private long[] starts = new long[16];
+    private long[] ends = new long[16];
+    private boolean[] escaped = new boolean[16];
+    //The strings made so far for this record
+    private String[] strings = new String[16];
+    private int count;
+    //Fields are copied in here to be decoded
+    private byte[] buffer = new byte[256];
+
+    private final pandiNative get = new pandiNative("get", 1,
+            (interpreter, arguments) -> get(null, arguments.get(0)));
+    private final pandiNative number = new pandiNative("number", 1,
+            (interpreter, arguments) -> number(index(null, arguments.get(0))));
+    private final pandiNative toList = new pandiNative("toList", 0, (interpreter, arguments) -> {
+        Object[] fields = new Object[count];
+        for (int i = 0; i < count; i++) {
+            fields[i] = string(i);
+        }
+        return new pandiList(fields);
+    });
+
+    pandiRow(MappedFile file) {
+        this.file = file;
+        this.segment = file.segment;
+    }
+
+    int size() {
+        return count;
+    }
+
+    void clear() {
+        Arrays.fill(strings, 0, count, null);
+        count = 0;
+    }
+
+    void add(long start, long end, boolean escaped) {
+        if (count == starts.length) {
+            int capacity = count * 2;
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            this.escaped = Arrays.copyOf(this.escaped, capacity);
+            strings = Arrays.copyOf(strings, capacity);
+        }
+        starts[count] = start;
+        ends[count] = end;
+        this.escaped[count] = escaped;
+        count++;
+    }
+
+    String string(int field) {
+        String string = strings[field];
+        if (string == null) {
+            string = decode(field);
+            strings[field] = string;
+        }
+        return string;
+    }
+
+    private String decode(int field) {
+        checkOpen();
+        long start = starts[field];
+        int length = (int) (ends[field] - start);
+        if (length > buffer.length) buffer = new byte[Math.max(length, buffer.length * 2)];
+        MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, start, buffer, 0, length);
+
+        if (escaped[field]) {
+            //Every pair of quotes is one quote
+            int to = 0;
+            for (int from = 0; from < length; from++, to++) {
+                buffer[to] = buffer[from];
+                if (buffer[from] == '"') from++;
+            }
+            length = to;
+        }
+        return new String(buffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    //Reads [-]digits[.digits][e[+-]digits] from the file. A number with up to 15 significant
+    // digits and a small exponent is one multiplication or division of two exact doubles, which
+    // rounds correctly, anything longer is left to Double.parseDouble on the string.
+    Object number(int field) {
+        long at = starts[field];
+        long end = ends[field];
+        if (escaped[field] || at == end) return null;
+        checkOpen();
+
+        boolean negative = false;
+        byte b = byteAt(at);
+        if (b == '-' || b == '+') {
+            negative = b == '-';
+            at++;
+        }
+
+        long mantissa = 0;
+        int exponent = 0;
+        int digits = 0;
+        boolean exact = true;
+        for (; at < end && isDigit(byteAt(at)); at++) {
+            if (mantissa < (1L << 53) / 10) {
+                mantissa = mantissa * 10 + (byteAt(at) - '0');
+            } else {
+                exact = false;
+            }
+            digits++;
+        }
+        if (at < end && byteAt(at) == '.') {
+            at++;
+            for (; at < end && isDigit(byteAt(at)); at++) {
+                if (mantissa < (1L << 53) / 10) {
+                    mantissa = mantissa * 10 + (byteAt(at) - '0');
+                    exponent--;
+                } else {
+                    exact = false;
+                }
+                digits++;
+            }
+        }
+        if (digits == 0) return null;
+
+        if (at < end && (byteAt(at) == 'e' || byteAt(at) == 'E')) {
+            at++;
+            boolean negativeExponent = false;
+            if (at < end && (byteAt(at) == '-' || byteAt(at) == '+')) {
+                negativeExponent = byteAt(at) == '-';
+                at++;
+            }
+            if (at == end) return null;
+
+            int written = 0;
+            for (; at < end && isDigit(byteAt(at)); at++) {
+                //Past this the number is 0 or infinite anyway, parseDouble sorts it out
+                if (written < 100000) written = written * 10 + (byteAt(at) - '0');
+            }
+            exponent += negativeExponent ? -written : written;
+        }
+        if (at != end) return null;
+
+        if (!exact || Math.abs(exponent) >= POWERS_OF_TEN.length) {
+            return Double.parseDouble(string(field));
+        }
+        double value = exponent >= 0
+                ? mantissa * POWERS_OF_TEN[exponent]
+                : mantissa / POWERS_OF_TEN[-exponent];
+        return negative ? -value : value;
+    }
+
+    private void checkOpen() {
+        if (file.isClosed()) throw new RuntimeError("Can't read a row after close().");
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private byte byteAt(long at) {
+        return segment.get(ValueLayout.JAVA_BYTE, at);
+    }
+
+    private int index(Token token, Object index) {
+        if (!(index instanceof Double)) throw new RuntimeError(token, "Field index must be a number.");
+
+        double number = (double) index;
+        if (number != Math.floor(number) || number < 0 || number >= count) {
+            throw new RuntimeError(token, "Field index out of range.");
+        }
+        return (int) number;
+    }
+
+    @Override
+    public Object get(Token bracket, Object index) {
+        return string(index(bracket, index));
+    }
+
+    @Override
+    public void set(Token bracket, Object index, Object value) {
+        throw new RuntimeError(bracket, "Rows can't be changed, copy one with toList().");
+    }
+
+    @Override
+    public Object get(Token name) {
+        switch (name.lexeme) {
+            case "length": return (double) count;
+            case "get": return get;
+            case "number": return number;
+            case "toList": return toList;
+        }
+        throw new RuntimeError(name, "Undefined property '" + name.lexeme + "'.");
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) text.append(", ");
+            text.append(string(i));
+        }
+        return text.append(']').toString();
+    }
+}
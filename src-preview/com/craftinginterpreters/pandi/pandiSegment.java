@@ -0,0 +1,106 @@
+package com.craftinginterpreters.pandi;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.ref.Cleaner;
+
+//The memory of DoubleArray(n) and Bytes(n), outside the Java heap: a big array costs the
+// heap nothing and the GC never copies or scans it.
+//  array.length    how many elements it holds
+//  array.free()    gives the memory back now, the array can not be used after that
+// The memory of an array that is never freed goes back once the array is garbage collected.
+// Every array has an arena of its own, shared so that tasks can use it too.
+// The JVM counts this memory against -XX:MaxDirectMemorySize (the heap size unless it is set),
+// so arrays bigger than the heap need that raised.
+abstract class pandiSegment implements pandiObject, pandiIndexable {
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    final long length;
+    final MemorySegment segment;
+    private final Arena arena = Arena.ofShared();
+    private final Cleaner.Cleanable cleanable;
+
+    private final pandiNative get = new pandiNative("get", 1,
+            (interpreter, arguments) -> get(null, arguments.get(0)));
+    private final pandiNative set = new pandiNative("set", 2, (interpreter, arguments) -> {
+        set(null, arguments.get(0), arguments.get(1));
+        return arguments.get(1);
+    });
+    private final pandiNative free = new pandiNative("free", 0, (interpreter, arguments) -> {
+        free();
+        return null;
+    });
+
+    pandiSegment(long length, long elementSize) {
+        this.length = length;
+        //Registered first, so the arena gets closed even if the allocation fails
+        this.cleanable = CLEANER.register(this, new Free(arena));
+        try {
+            this.segment = arena.allocate(length * elementSize, elementSize);
+        } catch (OutOfMemoryError e) {
+            throw new RuntimeError("Not enough memory for an array of " + length + " elements.");
+        }
+    }
+
+    //The length DoubleArray(n) or Bytes(n) was given, checked to be one that can be allocated
+    static long length(Object length, long elementSize) {
+        if (!(length instanceof Double) || (double) length < 0
+                || (double) length != Math.floor((double) length)) {
+            throw new RuntimeError("Array length must be a whole number that is not negative.");
+        }
+        if ((double) length > Long.MAX_VALUE / elementSize) {
+            throw new RuntimeError("Array length is too big.");
+        }
+        return (long) (double) length;
+    }
+
+    //Runs at most once, whether free() or the cleaner gets there first
+    void free() {
+        cleanable.clean();
+    }
+
+    //The element an index stands for
+    long index(Token token, Object index) {
+        if (!(index instanceof Double)) throw new RuntimeError(token, "Array index must be a number.");
+
+        double number = (double) index;
+        if (number != Math.floor(number) || number < 0 || number >= length) {
+            throw new RuntimeError(token, "Array index out of range.");
+        }
+        if (isFreed()) throw freed(token);
+        return (long) number;
+    }
+
+    boolean isFreed() {
+        return !arena.scope().isAlive();
+    }
+
+    RuntimeError freed(Token token) {
+        return new RuntimeError(token, "Can't use an array that has been freed.");
+    }
+
+    @Override
+    public Object get(Token name) {
+        switch (name.lexeme) {
+            case "length": return (double) length;
+            case "get": return get;
+            case "set": return set;
+            case "free": return free;
+        }
+        throw new RuntimeError(name, "Undefined property '" + name.lexeme + "'.");
+    }
+
+    //Does not hold on to the array, or the cleaner would never see it become unreachable
+    private static final class Free implements Runnable {
+        private final Arena arena;
+
+        Free(Arena arena) {
+            this.arena = arena;
+        }
+
+        @Override
+        public void run() {
+            arena.close();
+        }
+    }
+}
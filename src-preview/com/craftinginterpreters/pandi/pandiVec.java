@@ -0,0 +1,139 @@
+package com.craftinginterpreters.pandi;
+
+import java.lang.foreign.MemorySegment;
+import java.util.List;
+
+//What the global Vec holds: operations over whole arrays of numbers in one call, rather than
+// a loop in pandi doing one element per trip around it.
+//  Vec.add(dst, a, b)          dst[i] = a[i] + b[i]
+//  Vec.mul(dst, a, b)          dst[i] = a[i] * b[i]
+//  Vec.fma(dst, a, b, c)       dst[i] = a[i] * b[i] + c[i]
+//  Vec.scale(dst, a, k)        dst[i] = a[i] * k
+//  Vec.clamp(dst, a, lo, hi)   dst[i] = a[i] kept between lo and hi
+//  Vec.sum(a), Vec.dot(a, b), Vec.min(a), Vec.max(a)   (min and max of nothing are nil)
+// The arrays are DoubleArrays or lists holding nothing but numbers, all of the same length,
+// and dst can be one of the others. The loops themselves are in Kernels.
+final class pandiVec implements pandiObject {
+    private static final Kernels KERNELS = Kernels.best();
+
+    private final pandiNative add = kernel("add", 3, (interpreter, arguments) -> {
+        Operand[] operands = operands(arguments, 3);
+        KERNELS.add(operands[0].segment, operands[1].segment, operands[2].segment, operands[0].length);
+        return null;
+    });
+    private final pandiNative mul = kernel("mul", 3, (interpreter, arguments) -> {
+        Operand[] operands = operands(arguments, 3);
+        KERNELS.mul(operands[0].segment, operands[1].segment, operands[2].segment, operands[0].length);
+        return null;
+    });
+    private final pandiNative fma = kernel("fma", 4, (interpreter, arguments) -> {
+        Operand[] operands = operands(arguments, 4);
+        KERNELS.fma(operands[0].segment, operands[1].segment, operands[2].segment,
+                operands[3].segment, operands[0].length);
+        return null;
+    });
+    private final pandiNative scale = kernel("scale", 3, (interpreter, arguments) -> {
+        Operand[] operands = operands(arguments, 2);
+        KERNELS.scale(operands[0].segment, operands[1].segment, number(arguments.get(2)),
+                operands[0].length);
+        return null;
+    });
+    private final pandiNative clamp = kernel("clamp", 4, (interpreter, arguments) -> {
+        Operand[] operands = operands(arguments, 2);
+        KERNELS.clamp(operands[0].segment, operands[1].segment, number(arguments.get(2)),
+                number(arguments.get(3)), operands[0].length);
+        return null;
+    });
+    private final pandiNative sum = kernel("sum", 1, (interpreter, arguments) -> {
+        Operand a = operands(arguments, 1)[0];
+        return KERNELS.sum(a.segment, a.length);
+    });
+    private final pandiNative dot = kernel("dot", 2, (interpreter, arguments) -> {
+        Operand[] operands = operands(arguments, 2);
+        return KERNELS.dot(operands[0].segment, operands[1].segment, operands[0].length);
+    });
+    private final pandiNative min = kernel("min", 1, (interpreter, arguments) -> {
+        Operand a = operands(arguments, 1)[0];
+        return a.length == 0 ? null : (Object) KERNELS.min(a.segment, a.length);
+    });
+    private final pandiNative max = kernel("max", 1, (interpreter, arguments) -> {
+        Operand a = operands(arguments, 1)[0];
+        return a.length == 0 ? null : (Object) KERNELS.max(a.segment, a.length);
+    });
+
+    //A DoubleArray that has been freed is caught before the loop starts, this is for one that
+    // another thread frees while the loop runs
+    private static pandiNative kernel(String name, int arity, pandiNative.Body body) {
+        return new pandiNative(name, arity, (interpreter, arguments) -> {
+            try {
+                return body.call(interpreter, arguments);
+            } catch (IllegalStateException e) {
+                throw new RuntimeError("Can't use an array that has been freed.");
+            }
+        });
+    }
+
+    //The memory and length of an array argument
+    private static final class Operand {
+        final MemorySegment segment;
+        final long length;
+
+        Operand(MemorySegment segment, long length) {
+            this.segment = segment;
+            this.length = length;
+        }
+    }
+
+    //The first 'count' arguments as arrays of the same length
+    private static Operand[] operands(List<Object> arguments, int count) {
+        Operand[] operands = new Operand[count];
+        for (int i = 0; i < count; i++) {
+            operands[i] = operand(arguments.get(i));
+            if (operands[i].length != operands[0].length) {
+                throw new RuntimeError("Arrays must all have the same length.");
+            }
+        }
+        return operands;
+    }
+
+    private static Operand operand(Object value) {
+        if (value instanceof pandiDoubleArray) {
+            pandiDoubleArray array = (pandiDoubleArray) value;
+            if (array.isFreed()) throw array.freed(null);
+            return new Operand(array.segment, array.length);
+        }
+
+        if (value instanceof pandiList) {
+            pandiList list = (pandiList) value;
+            double[] numbers = list.numbers();
+            if (numbers != null) return new Operand(MemorySegment.ofArray(numbers), list.size());
+        }
+        throw new RuntimeError("Expected a DoubleArray or a list of numbers.");
+    }
+
+    private static double number(Object value) {
+        if (!(value instanceof Double)) throw new RuntimeError("Expected a number.");
+        return (double) value;
+    }
+
+    @Override
+    public Object get(Token name) {
+        switch (name.lexeme) {
+            case "add": return add;
+            case "mul": return mul;
+            case "fma": return fma;
+            case "scale": return scale;
+            case "clamp": return clamp;
+            case "sum": return sum;
+            case "dot": return dot;
+            case "min": return min;
+            case "max": return max;
+        }
+        throw new RuntimeError(name, "Undefined property '" + name.lexeme + "'.");
+    }
+
+    @Override
+    public String toString() {
+        return "<Vec>";
+    }
+}
@@ -0,0 +1,248 @@
+package com.craftinginterpreters.pandi;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//Base class for the passes that run on the resolved program and swap nodes for faster ones.
+// Every visit method returns the node that should take the visited node's place, by default
+// the node itself. A node is only rebuilt when one of its children got replaced, and whatever
+// the resolver filled in is carried over to the rebuilt node.
+// Statement lists are rewritten in place, so functions, classes and blocks keep their identity
+// (closures and the global slots hold on to the function declarations).
+abstract class AstRewriter implements Expr.Visitor<Expr>, Stmt.Visitor<Stmt> {
+    //The function whose body is being rewritten, null for the top level code
+    protected Stmt.Function currentFunction = null;
+
+    void rewrite(List<Stmt> statements) {
+        for (int i = 0; i < statements.size(); i++) {
+            statements.set(i, rewrite(statements.get(i)));
+        }
+    }
+
+    protected Stmt rewrite(Stmt stmt) {
+        //The parser leaves a null behind for a statement with a syntax error
+        if (stmt == null) return null;
+        return stmt.accept(this);
+    }
+
+    protected Expr rewrite(Expr expr) {
+        if (expr == null) return null;
+        return expr.accept(this);
+    }
+
+    private List<Expr> rewriteAll(List<Expr> exprs) {
+        List<Expr> rewritten = null;
+        for (int i = 0; i < exprs.size(); i++) {
+            Expr expr = rewrite(exprs.get(i));
+            if (expr != exprs.get(i) && rewritten == null) {
+                rewritten = new ArrayList<>(exprs);
+            }
+            if (rewritten != null) rewritten.set(i, expr);
+        }
+        //Same list back if nothing changed
+        return rewritten == null ? exprs : rewritten;
+    }
+
+
+    @Override
+    public Stmt visitBlockStmt(Stmt.Block stmt) {
+        rewrite(stmt.statements);
+        return stmt;
+    }
+
+    @Override
+    public Stmt visitClassStmt(Stmt.Class stmt) {
+        for (Stmt.Function method : stmt.methods) {
+            rewrite(method);
+        }
+        return stmt;
+    }
+
+    @Override
+    public Stmt visitExpressionStmt(Stmt.Expression stmt) {
+        Expr expression = rewrite(stmt.expression);
+        if (expression == stmt.expression) return stmt;
+        return new Stmt.Expression(expression);
+    }
+
+    @Override
+    public Stmt visitFunctionStmt(Stmt.Function stmt) {
+        Stmt.Function enclosingFunction = currentFunction;
+        currentFunction = stmt;
+        rewrite(stmt.body);
+        currentFunction = enclosingFunction;
+        return stmt;
+    }
+
+    @Override
+    public Stmt visitIfStmt(Stmt.If stmt) {
+        Expr condition = rewrite(stmt.condition);
+        Stmt thenBranch = rewrite(stmt.thenBranch);
+        Stmt elseBranch = rewrite(stmt.elseBranch);
+        if (condition == stmt.condition && thenBranch == stmt.thenBranch
+                && elseBranch == stmt.elseBranch) {
+            return stmt;
+        }
+        return new Stmt.If(condition, thenBranch, elseBranch);
+    }
+
+    @Override
+    public Stmt visitPrintStmt(Stmt.Print stmt) {
+        Expr expression = rewrite(stmt.expression);
+        if (expression == stmt.expression) return stmt;
+        return new Stmt.Print(expression);
+    }
+
+    @Override
+    public Stmt visitPrintVariableStmt(Stmt.PrintVariable stmt) {
+        return stmt;
+    }
+
+    @Override
+    public Stmt visitReturnStmt(Stmt.Return stmt) {
+        Expr value = rewrite(stmt.value);
+        if (value == stmt.value) return stmt;
+        return new Stmt.Return(stmt.keyword, value);
+    }
+
+    @Override
+    public Stmt visitVarStmt(Stmt.Var stmt) {
+        Expr initializer = rewrite(stmt.initializer);
+        if (initializer == stmt.initializer) return stmt;
+        Stmt.Var var = new Stmt.Var(stmt.name, initializer);
+        var.slot = stmt.slot;
+        return var;
+    }
+
+    @Override
+    public Stmt visitWhileStmt(Stmt.While stmt) {
+        Expr condition = rewrite(stmt.condition);
+        Stmt body = rewrite(stmt.body);
+        if (condition == stmt.condition && body == stmt.body) return stmt;
+        return new Stmt.While(condition, body);
+    }
+
+
+    @Override
+    public Expr visitAssignExpr(Expr.Assign expr) {
+        Expr value = rewrite(expr.value);
+        if (value == expr.value) return expr;
+        Expr.Assign assign = new Expr.Assign(expr.name, value);
+        assign.slot = expr.slot;
+        return assign;
+    }
+
+    @Override
+    public Expr visitBinaryExpr(Expr.Binary expr) {
+        Expr left = rewrite(expr.left);
+        Expr right = rewrite(expr.right);
+        if (left == expr.left && right == expr.right) return expr;
+        return new Expr.Binary(left, expr.operator, right);
+    }
+
+    @Override
+    public Expr visitCallExpr(Expr.Call expr) {
+        Expr callee = rewrite(expr.callee);
+        List<Expr> arguments = rewriteAll(expr.arguments);
+        if (callee == expr.callee && arguments == expr.arguments) return expr;
+        return new Expr.Call(callee, expr.paren, arguments);
+    }
+
+    @Override
+    public Expr visitGetExpr(Expr.Get expr) {
+        Expr object = rewrite(expr.object);
+        if (object == expr.object) return expr;
+        return new Expr.Get(object, expr.name);
+    }
+
+    @Override
+    public Expr visitGroupingExpr(Expr.Grouping expr) {
+        Expr expression = rewrite(expr.expression);
+        if (expression == expr.expression) return expr;
+        return new Expr.Grouping(expression);
+    }
+
+    @Override
+    public Expr visitIndexExpr(Expr.Index expr) {
+        Expr object = rewrite(expr.object);
+        Expr index = rewrite(expr.index);
+        if (object == expr.object && index == expr.index) return expr;
+        return new Expr.Index(object, expr.bracket, index);
+    }
+
+    @Override
+    public Expr visitIndexSetExpr(Expr.IndexSet expr) {
+        Expr object = rewrite(expr.object);
+        Expr index = rewrite(expr.index);
+        Expr value = rewrite(expr.value);
+        if (object == expr.object && index == expr.index && value == expr.value) return expr;
+        return new Expr.IndexSet(object, expr.bracket, index, value);
+    }
+
+    @Override
+    public Expr visitCompareLocalsExpr(Expr.CompareLocals expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitInlineExpr(Expr.Inline expr) {
+        //Both the call (which runs if the guard fails) and the copied body get rewritten
+        Expr call = rewrite(expr.call);
+        Expr body = rewrite(expr.body);
+        if (call == expr.call && body == expr.body) return expr;
+        return new Expr.Inline((Expr.Call) call, expr.function, expr.base, body);
+    }
+
+    @Override
+    public Expr visitLiteralExpr(Expr.Literal expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitLocalIncrementExpr(Expr.LocalIncrement expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitLogicalExpr(Expr.Logical expr) {
+        Expr left = rewrite(expr.left);
+        Expr right = rewrite(expr.right);
+        if (left == expr.left && right == expr.right) return expr;
+        return new Expr.Logical(left, expr.operator, right);
+    }
+
+    @Override
+    public Expr visitSetExpr(Expr.Set expr) {
+        Expr object = rewrite(expr.object);
+        Expr value = rewrite(expr.value);
+        if (object == expr.object && value == expr.value) return expr;
+        return new Expr.Set(object, expr.name, value);
+    }
+
+    @Override
+    public Expr visitSuperExpr(Expr.Super expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitThisExpr(Expr.This expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitThisGetExpr(Expr.ThisGet expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitUnaryExpr(Expr.Unary expr) {
+        Expr right = rewrite(expr.right);
+        if (right == expr.right) return expr;
+        return new Expr.Unary(expr.operator, right);
+    }
+
+    @Override
+    public Expr visitVariableExpr(Expr.Variable expr) {
+        return expr;
+    }
+}
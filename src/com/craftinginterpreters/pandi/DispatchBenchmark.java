@@ -0,0 +1,71 @@
+package com.craftinginterpreters.pandi;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+//Runs the same scripts on the visitor interpreter and on the switch interpreter and prints
+// how long each took, so we can tell which dispatch to use in production.
+// Usage: DispatchBenchmark [script...]  (without scripts a built in workload is used)
+// Both interpreters are loaded in the one JVM, run each one on its own as well before
+// trusting small differences.
+public class DispatchBenchmark {
+    private static final int WARMUP = 5;
+    private static final int RUNS = 10;
+
+    //A mix of calls, arithmetic, loops, closures and method calls
+    private static final String WORKLOAD = """
+            fun fib(n) { if (n <= 1) return n; return fib(n - 2) + fib(n - 1); }
+            fun counter() { var i = 0; fun next() { i = i + 1; return i; } return next; }
+            class Vec {
+              init(x, y) { this.x = x; this.y = y; }
+              add(o) { return Vec(this.x + o.x, this.y + o.y); }
+            }
+            var sum = 0;
+            for (var i = 0; i < 200000; i = i + 1) { sum = sum + i * 2 - 1; }
+            var next = counter();
+            for (var i = 0; i < 100000; i = i + 1) { next(); }
+            var v = Vec(0, 0);
+            for (var i = 0; i < 100000; i = i + 1) { v = v.add(Vec(1, 2)); }
+            var f = fib(22);
+            """;
+
+    public static void main(String[] args) throws IOException {
+        String[] sources;
+        if (args.length == 0) {
+            sources = new String[] {WORKLOAD};
+        } else {
+            sources = new String[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sources[i] = new String(Files.readAllBytes(Paths.get(args[i])), Charset.defaultCharset());
+            }
+        }
+
+        for (String source : sources) {
+            double visitor = measure(source, false);
+            double patterns = measure(source, true);
+            System.out.printf("visitor: %.1f ms, switch: %.1f ms (%.2fx)%n",
+                    visitor, patterns, visitor / patterns);
+        }
+    }
+
+    //Average milliseconds per run, each run gets a fresh interpreter
+    private static double measure(String source, boolean useSwitch) {
+        for (int i = 0; i < WARMUP; i++) {
+            run(source, useSwitch);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            run(source, useSwitch);
+        }
+        return (System.nanoTime() - start) / 1e6 / RUNS;
+    }
+
+    private static void run(String source, boolean useSwitch) {
+        Interpreter interpreter = useSwitch ? new SwitchInterpreter() : new Interpreter();
+        pandi.run(interpreter, source, pandi.reporter(interpreter));
+        interpreter.flush();
+    }
+}
@@ -1,94 +1,178 @@
 package com.craftinginterpreters.pandi;
 
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
-//Class for storing the state of the variables.
+//Class for storing the state of the global variables.
+// Locals do not live in here anymore, they have slots in the frame of their function.
+// Every global name gets a stable index the first time the resolver sees it (the GlobalTable
+// keeps those), so reading or writing a global at runtime is an array access instead of
+// hashing its name.
+//
+// The globals are shared by every thread, with no locking: like the fields of a Java object
+// a value written by one thread is seen by another once they have synchronized (a task's
+// result is seen after join() for example). New globals may show up while tasks are
+// running, so the values sit in chunks that never move, growing only adds chunks and a
+// write can never land in an array that has been replaced.
 public class Environment {
-    //This field helps the environment keep a track of the previous environment
-    final Environment enclosing;
+    //Marks an index whose name has been seen by the resolver but not defined yet
+    private static final Object UNDEFINED = new Object();
 
-    private final Map<String, Object> values = new HashMap<>();
+    final GlobalTable table;
 
+    private static final int CHUNK_BITS = 6;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    //The global at index i is values[i >> CHUNK_BITS][i & CHUNK_MASK]
+    private volatile Object[][] values = new Object[0][];
+
+    //The chunks of the prelude this environment was made from (see PandiContextPool).
+    // They are shared with every other environment made from it, so a chunk that is still
+    // one of these is copied before this environment writes to it.
+    private final Object[][] prelude;
+
+
+    //There is only the one global environment, it does not have a scope enclosing it.
+    // An engine makes one per context, all of them on the engine's table
+    Environment(GlobalTable table) {
+        this.table = table;
+        this.prelude = new Object[0][];
+    }
+
+    //Starts out with the globals of the prelude, without copying them
+    Environment(Environment prelude) {
+        this.table = prelude.table;
+        this.prelude = prelude.values.clone();
+        this.values = this.prelude.clone();
+    }
+
+    //Back to the globals of the prelude, for an environment that is being reused.
+    // Nothing may be running in it (a task still running would see its globals change)
+    synchronized void reset() {
+        values = prelude.clone();
+    }
 
-    //Creating an empty constructor to initialise the variable (This is for the outermost class)
-    // Because the global class does not have a scope to it.
     Environment() {
-        this.enclosing = null;
+        this(new GlobalTable());
     }
 
-    //Creating a constructor to store the value of an incoming nested class
-    Environment(Environment enclosing) {
-        this.enclosing = enclosing;
+
+    //Makes room for the first 'size' globals before code that uses them runs, so the
+    // accesses themselves never have to check
+    synchronized void ensureCapacity(int size) {
+        int chunks = (size + CHUNK_MASK) >> CHUNK_BITS;
+        if (chunks <= values.length) return;
+
+        //The new chunks have all of their indices marked as undefined
+        Object[][] grown = Arrays.copyOf(values, chunks);
+        for (int i = values.length; i < chunks; i++) {
+            grown[i] = new Object[CHUNK_SIZE];
+            Arrays.fill(grown[i], UNDEFINED);
+        }
+        values = grown;
     }
 
 
     //We need to bind the environment to store the variables.
     //So it needs to hook the variables to a value, uniqueness to be maintained......
 
-    Object get(Token name) {
-        if (values.containsKey(name.lexeme)) {
-            return values.get(name.lexeme);
+    Object get(int index, Token name) {
+        Object value = values[index >> CHUNK_BITS][index & CHUNK_MASK];
+        if (value == UNDEFINED) {
+            throw new RuntimeError(name, "Undefined variable '" + name.lexeme + ".");
         }
+        return value;
+    }
 
-        //The beautiful line of code, if the value was not found, it will go one level
-        // up to the enclosing environment's reference, get the name if it is present in there and try to reach uptop !!!!!
-        // until the enclosing is actually null (global variable's enclosing scope)
-
-        if (enclosing != null) {
-            return enclosing.get(name);
+    //The following method is useful for assigning get
+    void assign(int index, Token name, Object value) {
+        Object[] chunk = writable(index);
+        //Only a variable that has been defined can be assigned
+        if (chunk[index & CHUNK_MASK] == UNDEFINED) {
+            throw new RuntimeError(name, "Undefined variable '" + name.lexeme + ".");
         }
 
-        throw new RuntimeError(name, "Undefined variable '" + name.lexeme + ".");
+        chunk[index & CHUNK_MASK] = value;
     }
 
-    //The following method is useful for assigning get
-    void assign(Token name, Object value) {
-        //If the hashmap already contains the key then add the value
-        if (values.containsKey(name.lexeme)) {
-            values.put(name.lexeme, value);
-            return;
-        }
 
-        // keep checking which environment has the key with that name
-        // and assign the value to that environment
-        if (enclosing != null) {
-            enclosing.assign(name, value);
-            return;
+    void define(Slot slot, Object value) {
+        //A new name will bind the value to the name !
+        // Now the moment you redefine the variable -> it will replace the variable !!!
+        // and a global that was thought to be stable is invalidated at runtime
+        Object[] chunk = writable(slot.index);
+        if (chunk[slot.index & CHUNK_MASK] != UNDEFINED) {
+            slot.invalidate();
         }
+        chunk[slot.index & CHUNK_MASK] = value;
+    }
 
-        //else throw runtimeerror
-        throw new RuntimeError(name, "Undefined variable '" + name.lexeme + ".");
+    //Used for the natives and the values an embedder hands in, which are defined by name
+    void define(String name, Object value) {
+        Slot slot = table.slot(name);
+        ensureCapacity(slot.index + 1);
+        define(slot, value);
     }
 
+    //The value of a global by name, for the embedder, null if it is not defined
+    Object find(String name) {
+        Slot slot = table.find(name);
+        if (slot == null) return null;
 
+        Object value = valueAt(slot.index);
+        return value == UNDEFINED ? null : value;
+    }
 
-    void define(String name, Object value) {
-        //A new name will bind the value to the name !
-        // Now the moment you redefine the variable -> it will replace the variable !!!
-        values.put(name, value);
+    boolean isDefined(String name) {
+        Slot slot = table.find(name);
+        return slot != null && valueAt(slot.index) != UNDEFINED;
     }
 
-    Object getAt(int distance, String name) {
-        return ancestor(distance).values.get(name);
+    //For the embedder, the global reads as undefined again
+    void undefine(String name) {
+        Slot slot = table.find(name);
+        if (slot == null || valueAt(slot.index) == UNDEFINED) return;
+
+        slot.invalidate();
+        writable(slot.index)[slot.index & CHUNK_MASK] = UNDEFINED;
     }
 
-    Environment ancestor(int distance) {
-        Environment environment = this;
+    //A copy of every defined global by name, for the embedder
+    Map<String, Object> defined() {
+        Map<String, Object> defined = new LinkedHashMap<>();
+        for (Slot slot : table.slots()) {
+            Object value = valueAt(slot.index);
+            if (value != UNDEFINED) defined.put(slot.name, value);
+        }
+        return defined;
+    }
 
-        //First reach the current environment
-        for (int i = 0; i < distance; i++) {
-            //Then as you know the distance from the current keep
-            // looping inside that environment
-            environment = environment.enclosing;
+    //The chunk holding the index, copied first if it is still the prelude's
+    private Object[] writable(int index) {
+        int i = index >> CHUNK_BITS;
+        Object[] chunk = values[i];
+        if (i < prelude.length && chunk == prelude[i]) {
+            return copy(i);
         }
+        return chunk;
+    }
 
-        //Return that environment
-        return environment;
+    //Every writer holding a prelude chunk comes through here, so the prelude is never written
+    private synchronized Object[] copy(int i) {
+        Object[][] values = this.values;
+        if (values[i] == prelude[i]) {
+            values[i] = values[i].clone();
+        }
+        return values[i];
     }
 
-    void assignAt(int distance, Token name, Object value) {
-        ancestor(distance).values.put(name.lexeme, value);
+    //Any index, also one past the chunks this environment has made room for so far
+    private Object valueAt(int index) {
+        Object[][] values = this.values;
+        if (index >> CHUNK_BITS >= values.length) return UNDEFINED;
+        return values[index >> CHUNK_BITS][index & CHUNK_MASK];
     }
 
 }
@@ -0,0 +1,59 @@
+package com.craftinginterpreters.pandi;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//Where the scanner, parser, resolver and interpreter report the errors of one piece of code.
+// The command line prints every error as it comes (it overrides print), the engine keeps
+// them and hands them to the embedder in a PandiException.
+class ErrorReporter {
+    private final List<String> messages = new ArrayList<>();
+    boolean hadError = false;
+    boolean hadRuntimeError = false;
+
+    //The error handling method in pandi will point out the specific line
+    // where the user has encountered an error
+    void error(int line, String message) {
+        report(line, "", message);
+    }
+
+    //This is a different error function for reporting errors during the parsing:
+    // It is a wrapper to the report function
+    void error(Token token, String message) {
+        //Check line position
+        if (token.type == TokenType.EOF) {
+            report(token.line, " at end", message);
+        } else {
+            // Report the line and the particular lexeme so caught.
+            report(token.line, " at '" + token.lexeme + "'", message);
+        }
+    }
+
+    //Helper function for the error reporting
+    void report(int line, String where, String message) {
+        print("[line " + line + "] Error" + where + ": " + message + " :(");
+        hadError = true;
+    }
+
+    //The error reporting class for Runtime errors
+    void runtimeError(RuntimeError error) {
+        //The moment we typed super in the RuntimeError class
+        // it saved the message that we passed.
+        // This message can then be called by the .getMessage() method
+        // An error that is not about a line of the script has no token
+        if (error.token == null) {
+            print(error.getMessage());
+        } else {
+            print(error.getMessage() + "\n[line " + error.token.line + "]");
+        }
+        hadRuntimeError = true;
+    }
+
+    void print(String message) {
+        messages.add(message);
+    }
+
+    List<String> messages() {
+        return messages;
+    }
+}
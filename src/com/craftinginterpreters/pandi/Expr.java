@@ -2,22 +2,28 @@ package com.craftinginterpreters.pandi;
 
 import java.util.List;
 
-abstract class Expr {
+abstract sealed class Expr {
     interface Visitor<R> {
     R visitAssignExpr(Assign expr);
     R visitBinaryExpr(Binary expr);
     R visitCallExpr(Call expr);
+    R visitCompareLocalsExpr(CompareLocals expr);
     R visitGetExpr(Get expr);
     R visitGroupingExpr(Grouping expr);
+    R visitIndexExpr(Index expr);
+    R visitIndexSetExpr(IndexSet expr);
+    R visitInlineExpr(Inline expr);
     R visitLiteralExpr(Literal expr);
+    R visitLocalIncrementExpr(LocalIncrement expr);
     R visitLogicalExpr(Logical expr);
     R visitSetExpr(Set expr);
     R visitSuperExpr(Super expr);
     R visitThisExpr(This expr);
+    R visitThisGetExpr(ThisGet expr);
     R visitUnaryExpr(Unary expr);
     R visitVariableExpr(Variable expr);
     }
-    static class Assign extends Expr {
+    static final class Assign extends Expr {
     Assign(Token name, Expr value) {
     this.name = name;
     this.value = value;
@@ -30,8 +36,9 @@ abstract class Expr {
 
     final Token name;
     final Expr value;
+    Slot slot;
 }
-    static class Binary extends Expr {
+    static final class Binary extends Expr {
     Binary(Expr left, Token operator, Expr right) {
     this.left = left;
     this.operator = operator;
@@ -47,7 +54,7 @@ abstract class Expr {
     final Token operator;
     final Expr right;
 }
-    static class Call extends Expr {
+    static final class Call extends Expr {
     Call(Expr callee, Token paren, List<Expr> arguments) {
     this.callee = callee;
     this.paren = paren;
@@ -63,7 +70,23 @@ abstract class Expr {
     final Token paren;
     final List<Expr> arguments;
 }
-    static class Get extends Expr {
+    static final class CompareLocals extends Expr {
+    CompareLocals(Token operator, Slot left, Slot right) {
+    this.operator = operator;
+    this.left = left;
+    this.right = right;
+    }
+
+    @Override
+    <R> R accept(Visitor<R> visitor) {
+      return visitor.visitCompareLocalsExpr(this);
+    }
+
+    final Token operator;
+    final Slot left;
+    final Slot right;
+}
+    static final class Get extends Expr {
     Get(Expr object, Token name) {
     this.object = object;
     this.name = name;
@@ -77,7 +100,7 @@ abstract class Expr {
     final Expr object;
     final Token name;
 }
-    static class Grouping extends Expr {
+    static final class Grouping extends Expr {
     Grouping(Expr expression) {
     this.expression = expression;
     }
@@ -89,7 +112,59 @@ abstract class Expr {
 
     final Expr expression;
 }
-    static class Literal extends Expr {
+    static final class Index extends Expr {
+    Index(Expr object, Token bracket, Expr index) {
+    this.object = object;
+    this.bracket = bracket;
+    this.index = index;
+    }
+
+    @Override
+    <R> R accept(Visitor<R> visitor) {
+      return visitor.visitIndexExpr(this);
+    }
+
+    final Expr object;
+    final Token bracket;
+    final Expr index;
+}
+    static final class IndexSet extends Expr {
+    IndexSet(Expr object, Token bracket, Expr index, Expr value) {
+    this.object = object;
+    this.bracket = bracket;
+    this.index = index;
+    this.value = value;
+    }
+
+    @Override
+    <R> R accept(Visitor<R> visitor) {
+      return visitor.visitIndexSetExpr(this);
+    }
+
+    final Expr object;
+    final Token bracket;
+    final Expr index;
+    final Expr value;
+}
+    static final class Inline extends Expr {
+    Inline(Expr.Call call, Stmt.Function function, int base, Expr body) {
+    this.call = call;
+    this.function = function;
+    this.base = base;
+    this.body = body;
+    }
+
+    @Override
+    <R> R accept(Visitor<R> visitor) {
+      return visitor.visitInlineExpr(this);
+    }
+
+    final Expr.Call call;
+    final Stmt.Function function;
+    final int base;
+    final Expr body;
+}
+    static final class Literal extends Expr {
     Literal(Object value) {
     this.value = value;
     }
@@ -101,7 +176,25 @@ abstract class Expr {
 
     final Object value;
 }
-    static class Logical extends Expr {
+    static final class LocalIncrement extends Expr {
+    LocalIncrement(Token name, Token operator, Slot slot, double delta) {
+    this.name = name;
+    this.operator = operator;
+    this.slot = slot;
+    this.delta = delta;
+    }
+
+    @Override
+    <R> R accept(Visitor<R> visitor) {
+      return visitor.visitLocalIncrementExpr(this);
+    }
+
+    final Token name;
+    final Token operator;
+    final Slot slot;
+    final double delta;
+}
+    static final class Logical extends Expr {
     Logical(Expr left, Token operator, Expr right) {
     this.left = left;
     this.operator = operator;
@@ -117,7 +210,7 @@ abstract class Expr {
     final Token operator;
     final Expr right;
 }
-    static class Set extends Expr {
+    static final class Set extends Expr {
     Set(Expr object, Token name, Expr value) {
     this.object = object;
     this.name = name;
@@ -133,7 +226,7 @@ abstract class Expr {
     final Token name;
     final Expr value;
 }
-    static class Super extends Expr {
+    static final class Super extends Expr {
     Super(Token keyword, Token method) {
     this.keyword = keyword;
     this.method = method;
@@ -146,8 +239,11 @@ abstract class Expr {
 
     final Token keyword;
     final Token method;
+    Slot slot;
+    Slot thisSlot;
+    MethodCache cache;
 }
-    static class This extends Expr {
+    static final class This extends Expr {
     This(Token keyword) {
     this.keyword = keyword;
     }
@@ -158,8 +254,25 @@ abstract class Expr {
     }
 
     final Token keyword;
+    Slot slot;
+}
+    static final class ThisGet extends Expr {
+    ThisGet(Token keyword, Token name, Slot slot) {
+    this.keyword = keyword;
+    this.name = name;
+    this.slot = slot;
+    }
+
+    @Override
+    <R> R accept(Visitor<R> visitor) {
+      return visitor.visitThisGetExpr(this);
+    }
+
+    final Token keyword;
+    final Token name;
+    final Slot slot;
 }
-    static class Unary extends Expr {
+    static final class Unary extends Expr {
     Unary(Token operator, Expr right) {
     this.operator = operator;
     this.right = right;
@@ -173,7 +286,7 @@ abstract class Expr {
     final Token operator;
     final Expr right;
 }
-    static class Variable extends Expr {
+    static final class Variable extends Expr {
     Variable(Token name) {
     this.name = name;
     }
@@ -184,6 +297,7 @@ abstract class Expr {
     }
 
     final Token name;
+    Slot slot;
 }
 
   abstract <R> R accept(Visitor<R> visitor);
@@ -0,0 +1,39 @@
+package com.craftinginterpreters.pandi;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//The names of the globals and the slots the resolver gave them.
+// The values live in an Environment, the table only says where. Every environment of an
+// engine shares the engine's table, so a script compiled once finds each global at the
+// same index in all of them (and the REPL resolves each line against the same table).
+class GlobalTable {
+    private final Map<String, Slot> slots = new LinkedHashMap<>();
+
+    //Hands out the slot of a global name, the first time a name is seen it gets the next index
+    synchronized Slot slot(String name) {
+        Slot slot = slots.get(name);
+        if (slot == null) {
+            slot = Slot.global(name, slots.size());
+            slots.put(name, slot);
+        }
+        return slot;
+    }
+
+    //How many globals have a slot, every index handed out so far is below it
+    synchronized int size() {
+        return slots.size();
+    }
+
+    //A copy of the slots handed out so far
+    synchronized List<Slot> slots() {
+        return new ArrayList<>(slots.values());
+    }
+
+    //The slot of a name, null if no code has used the name
+    synchronized Slot find(String name) {
+        return slots.get(name);
+    }
+}
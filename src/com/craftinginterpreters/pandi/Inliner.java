@@ -0,0 +1,209 @@
+package com.craftinginterpreters.pandi;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//Runs after the resolver and copies the bodies of small helper functions into their call sites.
+// A function is inlined when:
+//  - it is a stable global (declared once, never reassigned) so the call site can be bound to it,
+//  - its body is a single 'return <expression>;' that fits in the size budget,
+//  - it does not call itself, and the call passes the right number of arguments.
+// The arguments are still evaluated left to right, each into a temporary slot in the caller's
+// frame, and the copied body reads the parameters from those slots. So a call to
+// 'fun square(x) { return x * x; }' costs no argument list, frame or Return exception.
+class Inliner extends AstRewriter {
+    //How many nodes an inlined body may have, -Dpandi.inline.budget=0 turns inlining off
+    private static final int BUDGET = Integer.getInteger("pandi.inline.budget", 16);
+
+    //Frame size of the top level code, which grows by the temporaries of its inlined calls
+    private int frameSize;
+
+    Inliner(int frameSize) {
+        this.frameSize = frameSize;
+    }
+
+    void inline(List<Stmt> statements) {
+        if (BUDGET <= 0) return;
+        rewrite(statements);
+    }
+
+    int frameSize() {
+        return frameSize;
+    }
+
+    @Override
+    public Expr visitCallExpr(Expr.Call expr) {
+        //The arguments may have calls to inline as well
+        Expr.Call call = (Expr.Call) super.visitCallExpr(expr);
+
+        Stmt.Function function = inlineable(call);
+        if (function == null) return call;
+
+        //The temporaries get slots past every local of the caller, the callee's own
+        // temporaries (from calls inlined into its body) come along too
+        int base = currentFunction == null ? frameSize : currentFunction.frameSize;
+        Copy copy = new Copy(base, ((Expr.Variable) call.callee).slot);
+        Expr body = copy.copy(((Stmt.Return) function.body.get(0)).value);
+
+        if (copy.recursive || copy.size > BUDGET) return call;
+
+        if (currentFunction == null) {
+            frameSize += function.frameSize;
+        } else {
+            currentFunction.frameSize += function.frameSize;
+        }
+        return new Expr.Inline(call, function, base, body);
+    }
+
+    //The declaration to inline, or null if the call has to stay a call
+    private Stmt.Function inlineable(Expr.Call call) {
+        if (!(call.callee instanceof Expr.Variable)) return null;
+
+        Slot slot = ((Expr.Variable) call.callee).slot;
+        if (!slot.isStable() || !(slot.declaration instanceof Stmt.Function)) return null;
+
+        Stmt.Function function = (Stmt.Function) slot.declaration;
+        //The arity error has to happen at runtime
+        if (function.params.size() != call.arguments.size()) return null;
+        //Top level functions never capture, but be sure
+        if (!function.upvalues.isEmpty()) return null;
+
+        if (function.body.size() != 1 || !(function.body.get(0) instanceof Stmt.Return)) return null;
+        if (((Stmt.Return) function.body.get(0)).value == null) return null;
+
+        return function;
+    }
+
+    //Deep copies the body of the inlined function, moving its locals (the parameters and
+    // any temporaries of its own) over to the caller's frame starting at 'base'.
+    private static class Copy implements Expr.Visitor<Expr> {
+        private final int base;
+        private final Slot self;
+        int size = 0;
+        boolean recursive = false;
+
+        Copy(int base, Slot self) {
+            this.base = base;
+            this.self = self;
+        }
+
+        Expr copy(Expr expr) {
+            size++;
+            return expr.accept(this);
+        }
+
+        private List<Expr> copyAll(List<Expr> exprs) {
+            List<Expr> copies = new ArrayList<>();
+            for (Expr expr : exprs) {
+                copies.add(copy(expr));
+            }
+            return copies;
+        }
+
+        private Slot move(Slot slot) {
+            if (slot == self) recursive = true;
+            if (slot.kind == Slot.Kind.LOCAL) {
+                return Slot.local(slot.name, base + slot.index);
+            }
+            return slot;
+        }
+
+        @Override
+        public Expr visitAssignExpr(Expr.Assign expr) {
+            Expr.Assign assign = new Expr.Assign(expr.name, copy(expr.value));
+            assign.slot = move(expr.slot);
+            return assign;
+        }
+
+        @Override
+        public Expr visitBinaryExpr(Expr.Binary expr) {
+            return new Expr.Binary(copy(expr.left), expr.operator, copy(expr.right));
+        }
+
+        @Override
+        public Expr visitCallExpr(Expr.Call expr) {
+            return new Expr.Call(copy(expr.callee), expr.paren, copyAll(expr.arguments));
+        }
+
+        @Override
+        public Expr visitCompareLocalsExpr(Expr.CompareLocals expr) {
+            return new Expr.CompareLocals(expr.operator, move(expr.left), move(expr.right));
+        }
+
+        @Override
+        public Expr visitGetExpr(Expr.Get expr) {
+            return new Expr.Get(copy(expr.object), expr.name);
+        }
+
+        @Override
+        public Expr visitGroupingExpr(Expr.Grouping expr) {
+            return new Expr.Grouping(copy(expr.expression));
+        }
+
+        @Override
+        public Expr visitIndexExpr(Expr.Index expr) {
+            return new Expr.Index(copy(expr.object), expr.bracket, copy(expr.index));
+        }
+
+        @Override
+        public Expr visitIndexSetExpr(Expr.IndexSet expr) {
+            return new Expr.IndexSet(copy(expr.object), expr.bracket, copy(expr.index),
+                    copy(expr.value));
+        }
+
+        @Override
+        public Expr visitInlineExpr(Expr.Inline expr) {
+            //A call that was already inlined into the body, its temporaries move along
+            return new Expr.Inline((Expr.Call) copy(expr.call), expr.function,
+                    base + expr.base, copy(expr.body));
+        }
+
+        @Override
+        public Expr visitLiteralExpr(Expr.Literal expr) {
+            return expr;
+        }
+
+        @Override
+        public Expr visitLocalIncrementExpr(Expr.LocalIncrement expr) {
+            return new Expr.LocalIncrement(expr.name, expr.operator, move(expr.slot), expr.delta);
+        }
+
+        @Override
+        public Expr visitLogicalExpr(Expr.Logical expr) {
+            return new Expr.Logical(copy(expr.left), expr.operator, copy(expr.right));
+        }
+
+        @Override
+        public Expr visitSetExpr(Expr.Set expr) {
+            return new Expr.Set(copy(expr.object), expr.name, copy(expr.value));
+        }
+
+        @Override
+        public Expr visitSuperExpr(Expr.Super expr) {
+            //Not possible in a top level function
+            throw new IllegalStateException("Cannot inline 'super'.");
+        }
+
+        @Override
+        public Expr visitThisExpr(Expr.This expr) {
+            throw new IllegalStateException("Cannot inline 'this'.");
+        }
+
+        @Override
+        public Expr visitThisGetExpr(Expr.ThisGet expr) {
+            throw new IllegalStateException("Cannot inline 'this'.");
+        }
+
+        @Override
+        public Expr visitUnaryExpr(Expr.Unary expr) {
+            return new Expr.Unary(expr.operator, copy(expr.right));
+        }
+
+        @Override
+        public Expr visitVariableExpr(Expr.Variable expr) {
+            Expr.Variable variable = new Expr.Variable(expr.name);
+            variable.slot = move(expr.slot);
+            return variable;
+        }
+    }
+}
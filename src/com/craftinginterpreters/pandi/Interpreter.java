@@ -1,64 +1,77 @@
 package com.craftinginterpreters.pandi;
 
-import java.util.ArrayList;
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.List;
 
 // Statements do not produce any values so they return Void
 // Java does not allow returning lowercase void objects.... so we use Void
+//
+// An interpreter is the execution context of one thread: the frame and upvalues below are
+// the state of the code that thread is running. Code spawned onto another thread gets a
+// context of its own from fork(), which shares the globals and the output with this one.
 public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
-    //This is the outermost environment variable with enclosing = null
-    final Environment globals = new Environment();
-    private Environment environment = globals;
-    private final Map<Expr, Integer> locals = new HashMap<>();
+    //This is the outermost environment which holds the global variables
+    final Environment globals;
+    //The frame of the function that is running, every local of every block in the
+    // function has a slot in here (the resolver hands out the slots)
+    private Object[] frame = new Object[0];
+    //The upvalues of the closure that is running right now (top level code captures nothing)
+    private Upvalue[] upvalues = new Upvalue[0];
 
-    Interpreter() {
-        // So we define a global function called the clock where the function returns the
-        // current time (This is a callable native function that we have defined)
-        globals.define("clock", new pandiCallable() {
-            @Override
-            public int arity() {
-                return 0;
-            }
+    //How many chars print collects before they are written out, -Dpandi.output.buffer to change it
+    private static final int OUTPUT_BUFFER = Integer.getInteger("pandi.output.buffer", 1 << 16);
 
-            @Override
-            public Object call(Interpreter interpreter, List<Object> arguments) {
-                return (double)System.currentTimeMillis() / 1000;
-            }
+    //print writes in here instead of System.out, which locks and may flush on every line.
+    // It is flushed when the script ends or fails, before every REPL prompt and by flush()
+    // (PrintWriter locks around every println, so contexts sharing it print whole lines)
+    private final PrintWriter out;
 
-            @Override
-            public String toString() {
-                return "<native fn>";
-            }
-        });
+    //An interpreter printing to standard output, with fresh globals holding the natives
+    Interpreter() {
+        this(new Environment(), standardOutput());
+        Natives.define(globals);
+    }
 
-        //*** FUNCTION TO PRINT PANDI LOL****//
-        globals.define("PANDI", new pandiCallable() {
+    //The engine makes its contexts with this, the globals come with the natives defined already
+    Interpreter(Environment globals, PrintWriter out) {
+        this.globals = globals;
+        this.out = out;
+    }
 
+    //-Dpandi.dispatch=switch picks the interpreter that dispatches with a switch over the node types
+    static Interpreter newInterpreter(Environment globals, PrintWriter out) {
+        if ("switch".equals(System.getProperty("pandi.dispatch"))) {
+            return new SwitchInterpreter(globals, out);
+        }
+        return new Interpreter(globals, out);
+    }
 
-            @Override
-            public int arity() {
-                return 0;
-            }
+    static PrintWriter standardOutput() {
+        return new PrintWriter(new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(FileDescriptor.out), System.out.charset()),
+                OUTPUT_BUFFER), false);
+    }
 
-            @Override
-            public Object call(Interpreter interpreter, List<Object> arguments) {
-                return """
-                                                    ╱|、
-                                                  (˚ˎ 。7 \s
-                                                   |、˜〵         \s
-                                                   じしˍ,)ノ\
-                        """ + "\n meoowwww";
-            }
+    //The context for another thread, only the globals (natives included) and the output are shared
+    Interpreter(Interpreter parent) {
+        this.globals = parent.globals;
+        this.out = parent.out;
+    }
 
-            @Override
-            public String toString() {
-                return "";
-            }
-        });
+    //SwitchInterpreter hands out contexts of its own kind
+    Interpreter fork() {
+        return new Interpreter(this);
+    }
 
+    void flush() {
+        out.flush();
     }
 
 
@@ -108,13 +121,50 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         return value;
     }
 
+    //'list[i]', 'map[key]' and the other natives that can be indexed
+    @Override
+    public Object visitIndexExpr(Expr.Index expr) {
+        Object object = evaluate(expr.object);
+        Object index = evaluate(expr.index);
+
+        if (object instanceof pandiIndexable) {
+            return ((pandiIndexable) object).get(expr.bracket, index);
+        }
+        throw new RuntimeError(expr.bracket, "Only lists, maps and arrays can be indexed.");
+    }
+
+    //'list[i] = value', the value is evaluated last like it is for a field
+    @Override
+    public Object visitIndexSetExpr(Expr.IndexSet expr) {
+        Object object = evaluate(expr.object);
+        Object index = evaluate(expr.index);
+
+        if (!(object instanceof pandiIndexable)) {
+            throw new RuntimeError(expr.bracket, "Only lists, maps and arrays can be indexed.");
+        }
+
+        Object value = evaluate(expr.value);
+        ((pandiIndexable) object).set(expr.bracket, index, value);
+        return value;
+    }
+
     @Override
     public Object visitSuperExpr(Expr.Super expr) {
-        int distance = locals.get(expr);
-        pandiClass superclass = (pandiClass)environment.getAt(
-                distance, "super");
+        pandiFunction method = superMethod(expr);
+
+        pandiInstance object = (pandiInstance) lookUpVariable(expr.keyword, expr.thisSlot);
+
+        return method.bind(object);
+    }
 
-        pandiInstance object = (pandiInstance) environment.getAt(distance - 1, "this");
+    //The method a 'super' site refers to, cached on the site for the superclass it found
+    private pandiFunction superMethod(Expr.Super expr) {
+        pandiClass superclass = (pandiClass) lookUpVariable(expr.keyword, expr.slot);
+
+        MethodCache cache = expr.cache;
+        if (cache != null && cache.klass == superclass) {
+            return cache.method;
+        }
 
         pandiFunction method = superclass.findMethod(expr.method.lexeme);
 
@@ -123,13 +173,33 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
                     "Undefined property '" + expr.method.lexeme + "'.");
         }
 
-        return method.bind(object);
+        expr.cache = new MethodCache(superclass, method);
+        return method;
+    }
+
+    //super.method(...) calls the cached method with the current receiver, there is no bound
+    // method to allocate and the arguments go straight into the method's frame
+    private Object callSuper(Expr.Super callee, Expr.Call expr) {
+        pandiFunction method = superMethod(callee);
+        pandiInstance object = (pandiInstance) lookUpVariable(callee.keyword, callee.thisSlot);
+
+        List<Expr> arguments = expr.arguments;
+        if (arguments.size() != method.arity()) {
+            //Let the general path evaluate the arguments and report the error
+            return call(method.bind(object), expr);
+        }
+
+        Object[] frame = method.frameFor(object);
+        for (int i = 0; i < arguments.size(); i++) {
+            frame[i + 1] = evaluate(arguments.get(i));
+        }
+        return method.invoke(this, frame, object);
     }
 
 
     @Override
     public Object visitThisExpr(Expr.This expr) {
-        return lookUpVariable(expr.keyword, expr);
+        return lookUpVariable(expr.keyword, expr.slot);
     }
 
     @Override
@@ -141,28 +211,40 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     //Since the grouping expression itself has an expression inside of it
     // The method places an accept call on the entire inner expression
     // Which in turn keeps calling the accept method inside !
-    private Object evaluate(Expr expr) {
+    // (SwitchInterpreter dispatches on the node type with a switch instead)
+    Object evaluate(Expr expr) {
         return expr.accept(this);
     }
 
 
-    private void execute(Stmt stmt) {
+    void execute(Stmt stmt) {
         stmt.accept(this);
     }
 
-    void resolve(Expr expr, int depth) {
-        locals.put(expr, depth);
+    //Collects the upvalues a closure needs at the moment it is created.
+    // A capture either points to a local of the running function (which gets boxed now)
+    // or to one of the running closure's own upvalues.
+    private Upvalue[] capture(List<Slot> captures) {
+        Upvalue[] captured = new Upvalue[captures.size()];
+        for (int i = 0; i < captured.length; i++) {
+            Slot slot = captures.get(i);
+            if (slot.kind == Slot.Kind.LOCAL) {
+                captured[i] = captureLocal(slot.index);
+            } else {
+                captured[i] = upvalues[slot.index];
+            }
+        }
+        return captured;
     }
 
     @Override
     public Void visitBlockStmt(Stmt.Block stmt) {
-        //When the code calls a visit block statement, it creates a
-        // new environment so that environment's enclosing is linked to
-        // the interpreter's enclosing (so it is linked to global)
-        // which in turn is linked to null
-
-        //So this is the new environment created for the block
-        executeBlock(stmt.statements, new Environment(environment));
+        //A block does not need an environment of its own, its locals already have
+        // slots in the running function's frame. So entering a block (or running
+        // another iteration of a loop body) allocates nothing.
+        for (Stmt statement : stmt.statements) {
+            execute(statement);
+        }
         return null;
     }
 
@@ -183,52 +265,94 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         }
 
 
-        // The class gets defined in the global scope
+        // The class gets defined in the global scope (or its slot)
         // the environment then goes and adds the class name in its hashmap
-        environment.define(stmt.name.lexeme, null);
+        define(stmt.slot, stmt.name, null);
 
+        //The methods capture 'super' from its own slot
         if (stmt.superclass != null) {
-
-            environment = new Environment(environment);
-
-            environment.define("super", superclass);
+            frame[stmt.superSlot.index] = superclass;
         }
 
         //Then we create a class instance of pandi class to store the name,
         Map<String, pandiFunction> methods = new HashMap<>();
         for (Stmt.Function method : stmt.methods) {
-            pandiFunction function = new pandiFunction(method, environment, method.name.lexeme.equals("init"));
+            pandiFunction function = new pandiFunction(method, capture(method.upvalues),
+                    method.name.lexeme.equals("init"));
             methods.put(method.name.lexeme, function);
         }
         pandiClass klass = new pandiClass(stmt.name.lexeme,(pandiClass) superclass ,methods);
 
-        if (superclass != null) {
-            environment = environment.enclosing;
-        }
-
         // and by calling the assign function we end up storing the class object that we created
         // into the hashmap
-        environment.assign(stmt.name, klass);
+        assign(stmt.slot, stmt.name, klass);
 
         return null;
     }
 
+    //Function bodies run in the frame of the call and with the upvalues of the closure being called
     void executeBlock(List<Stmt> statements,
-                      Environment environment) {
-        Environment previous = this.environment;
+                      Object[] frame, Upvalue[] upvalues) {
+        Object[] previous = this.frame;
+        Upvalue[] previousUpvalues = this.upvalues;
         try {
-            // The interpreter's current environment is switched to the Block's environment
-            this.environment = environment;
+            // The interpreter's current frame is switched to the function's frame
+            this.frame = frame;
+            this.upvalues = upvalues;
 
-            // For each statement -> it is executed in that environment !
+            // For each statement -> it is executed in that frame !
             for (Stmt statement : statements) {
                 execute(statement);
             }
         } finally {
-            this.environment = previous;
+            this.frame = previous;
+            this.upvalues = previousUpvalues;
         }
     }
 
+    //Declarations either fill their slot in the frame or a global slot
+    private void define(Slot slot, Token name, Object value) {
+        if (slot.kind == Slot.Kind.GLOBAL) {
+            globals.define(slot, value);
+        } else {
+            //A fresh variable, so any upvalue box from an earlier run of the block is left behind
+            frame[slot.index] = value;
+        }
+    }
+
+    private void assign(Slot slot, Token name, Object value) {
+        switch (slot.kind) {
+            case LOCAL:
+                Object current = frame[slot.index];
+                //Write through the box if a closure has captured the local
+                if (current instanceof Upvalue) {
+                    ((Upvalue) current).value = value;
+                } else {
+                    frame[slot.index] = value;
+                }
+                break;
+            case UPVALUE:
+                upvalues[slot.index].value = value;
+                break;
+            case GLOBAL:
+                globals.assign(slot.index, name, value);
+                break;
+        }
+    }
+
+    //Moves the local into an upvalue box (unless a closure already did that) and
+    // returns the box so that the closure shares it with this frame
+    private Upvalue captureLocal(int index) {
+        Object value = frame[index];
+        if (value instanceof Upvalue) {
+            return (Upvalue) value;
+        }
+
+        Upvalue upvalue = new Upvalue(value);
+        frame[index] = upvalue;
+        return upvalue;
+    }
+
 
 
     @Override
@@ -241,10 +365,12 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
     @Override
     public Void visitFunctionStmt(Stmt.Function stmt) {
+        // The name is etched in the environment's memory first so that a
+        // recursive function can capture itself
+        define(stmt.slot, stmt.name, null);
         // A new function is created
-        pandiFunction function = new pandiFunction(stmt, environment, false );
-        // The name of the function is etched in the environment's memory
-        environment.define(stmt.name.lexeme, function);
+        pandiFunction function = new pandiFunction(stmt, capture(stmt.upvalues), false);
+        assign(stmt.slot, stmt.name, function);
         // A null is returned.
         return null;
     }
@@ -264,7 +390,14 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     @Override
     public Void visitPrintStmt(Stmt.Print stmt) {
         Object value = evaluate(stmt.expression);
-        System.out.println(stringify(value));
+        out.println(stringify(value));
+        return null;
+    }
+
+    //'print name;' reads the variable without going through an expression node
+    @Override
+    public Void visitPrintVariableStmt(Stmt.PrintVariable stmt) {
+        out.println(stringify(lookUpVariable(stmt.name, stmt.slot)));
         return null;
     }
 
@@ -292,10 +425,10 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
             //Start with evaluating the value of the initializer
             value = evaluate(stmt.initializer);
         }
-        //After the value has been evaluated, store teh value in the environment hashmap
+        //After the value has been evaluated, store teh value in its slot (or the globals hashmap)
         //in case the variable does not have any assignment yet, the variable is just stored as null
         //eg: var varun;.... will be stored as null
-        environment.define(stmt.name.lexeme, value);
+        define(stmt.slot, stmt.name, value);
         return null;
     }
 
@@ -314,13 +447,7 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     public Object visitAssignExpr(Expr.Assign expr) {
         Object value = evaluate(expr.value);
 
-        Integer distance = locals.get(expr);
-
-        if (distance != null) {
-            environment.assignAt(distance, expr.name, value);
-        } else {
-            globals.assign(expr.name, value);
-        }
+        assign(expr.slot, expr.name, value);
 
         return value;
     }
@@ -387,21 +514,104 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         return null;
     }
 
+    //'a < b' between two locals, without evaluating two variable nodes first
+    @Override
+    public Object visitCompareLocalsExpr(Expr.CompareLocals expr) {
+        Object left = readLocal(expr.left.index);
+        Object right = readLocal(expr.right.index);
+        checkNumberOperands(expr.operator, left, right);
+
+        switch (expr.operator.type) {
+            case GREATER:
+                return (double) left > (double) right;
+            case GREATER_EQUAL:
+                return (double) left >= (double) right;
+            case LESS:
+                return (double) left < (double) right;
+            default:
+                return (double) left <= (double) right;
+        }
+    }
+
+    //'i = i + 1' on a local, one read and one write of the slot
+    @Override
+    public Object visitLocalIncrementExpr(Expr.LocalIncrement expr) {
+        Object current = readLocal(expr.slot.index);
+        if (!(current instanceof Double)) {
+            //The same errors as the binary expression it replaced
+            throw new RuntimeError(expr.operator, expr.operator.type == TokenType.PLUS
+                    ? "Operands must be two numbers or strings."
+                    : "Operands must be numbers.");
+        }
+
+        Object value = (double) current + expr.delta;
+        assign(expr.slot, expr.name, value);
+        return value;
+    }
+
     @Override
     public Object visitCallExpr(Expr.Call expr) {
         //The callee is an object
         // which is evaluated by the interpreter
+        if (expr.callee instanceof Expr.Super) {
+            return callSuper((Expr.Super) expr.callee, expr);
+        }
+
         Object callee = evaluate(expr.callee);
 
-        //A new arraylist is created to hold the arguments
-        List<Object> arguments = new ArrayList<>();
+        return call(callee, expr);
+    }
+
+    //Everything of a call after the callee has been evaluated
+    // Calls with up to three arguments keep them in locals and go through the specialized
+    // entry points, so no list is allocated for them.
+    private Object call(Object callee, Expr.Call expr) {
+        List<Expr> arguments = expr.arguments;
 
-        //for all the arguments parsed by the parser
-        for (Expr argument : expr.arguments) {
-            //add the evaluated values to the interpreter's args list
-            arguments.add(evaluate(argument));
+        //and a function call is returned
+        // this will also be used to call classes (****Since classes are also called)!!!
+        try {
+            return call(callee, expr, arguments);
+        } catch (RuntimeError error) {
+            //An error thrown by a native gets the call site's line
+            if (error.token == null) throw new RuntimeError(expr.paren, error.getMessage());
+            throw error;
         }
+    }
 
+    private Object call(Object callee, Expr.Call expr, List<Expr> arguments) {
+        switch (arguments.size()) {
+            case 0:
+                return checkCallable(callee, expr, 0).call0(this);
+            case 1: {
+                Object a = evaluate(arguments.get(0));
+                return checkCallable(callee, expr, 1).call1(this, a);
+            }
+            case 2: {
+                Object a = evaluate(arguments.get(0));
+                Object b = evaluate(arguments.get(1));
+                return checkCallable(callee, expr, 2).call2(this, a, b);
+            }
+            case 3: {
+                Object a = evaluate(arguments.get(0));
+                Object b = evaluate(arguments.get(1));
+                Object c = evaluate(arguments.get(2));
+                return checkCallable(callee, expr, 3).call3(this, a, b, c);
+            }
+            default: {
+                //for all the arguments parsed by the parser
+                Object[] values = new Object[arguments.size()];
+                for (int i = 0; i < values.length; i++) {
+                    //add the evaluated values to the interpreter's args array
+                    values[i] = evaluate(arguments.get(i));
+                }
+                return checkCallable(callee, expr, values.length).call(this, values);
+            }
+        }
+    }
+
+    //Checks are done once the arguments have been evaluated
+    private pandiCallable checkCallable(Object callee, Expr.Call expr, int count) {
         //If the callee happens to be an instance of pandiCallable
         if (!(callee instanceof pandiCallable)) {
             // if not then the interpreter is sent into panic mode
@@ -411,15 +621,32 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         //once all the arguments have been analysed the callee is cast to a pandiCallable function
         pandiCallable function = (pandiCallable) callee;
 
-        //Arity checks
-        if (arguments.size() != function.arity()) {
+        //Arity checks, a native with a negative arity takes any number of arguments
+        if (count != function.arity() && function.arity() >= 0) {
             throw new RuntimeError(expr.paren, "Expected "+function.arity()+" arguments but got"
-            + arguments.size()+" .");
+            + count+" .");
         }
+        return function;
+    }
 
-        //and a function call is returned
-        // this will also be used to call classes (****Since classes are also called)!!!
-        return function.call(this, arguments);
+    @Override
+    public Object visitInlineExpr(Expr.Inline expr) {
+        //The callee is evaluated first, just like a call
+        Object callee = evaluate(expr.call.callee);
+
+        //The copied body is only right while the global still holds the function it was
+        // copied from, otherwise it is an ordinary call
+        if (!(callee instanceof pandiFunction) || !((pandiFunction) callee).isDeclaredBy(expr.function)) {
+            return call(callee, expr.call);
+        }
+
+        //The arguments go into the temporaries which the body reads as its parameters
+        List<Expr> arguments = expr.call.arguments;
+        for (int i = 0; i < arguments.size(); i++) {
+            frame[expr.base + i] = evaluate(arguments.get(i));
+        }
+
+        return evaluate(expr.body);
     }
 
     @Override
@@ -433,11 +660,22 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
             return ((pandiInstance) object).get(expr.name);
         }
 
+        //The objects that the natives hand out have properties as well
+        if (object instanceof pandiObject) {
+            return ((pandiObject) object).get(expr.name);
+        }
+
         throw new RuntimeError(expr.name, "Only instances have properties.");
 
     }
 
 
+    //'this.name', the receiver is always an instance so there is nothing to check
+    @Override
+    public Object visitThisGetExpr(Expr.ThisGet expr) {
+        pandiInstance object = (pandiInstance) lookUpVariable(expr.keyword, expr.slot);
+        return object.get(expr.name);
+    }
 
     @Override
     public Object visitUnaryExpr(Expr.Unary expr) {
@@ -460,22 +698,34 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     //This method just
     @Override
     public Object visitVariableExpr(Expr.Variable expr) {
-        return lookUpVariable(expr.name, expr);
+        return lookUpVariable(expr.name, expr.slot);
+    }
+
+    private Object lookUpVariable(Token name, Slot slot) {
+        //The semantic analysis gives every variable a slot
+        // so each kind of variable is a single array access away
+        switch (slot.kind) {
+            case LOCAL:
+                //A local that a closure captured lives inside an upvalue box
+                return readLocal(slot.index);
+            case UPVALUE:
+                return upvalues[slot.index].value;
+            default:
+                //Globals are checked for being defined
+                return globals.get(slot.index, name);
+        }
     }
 
-    private Object lookUpVariable(Token name, Expr expr) {
-        //The semantic analysis does not store global variables
-        //Only the local variables are stored
-        // so if you cant find it in the locals map it must be a global variable
-        Integer distance = locals.get(expr);
-        if (distance != null) {
-            return environment.getAt(distance, name.lexeme);
-        } else {
-            return globals.get(name);
+
+    //Reads a local of the running frame, looking through its upvalue box if it has one
+    private Object readLocal(int index) {
+        Object value = frame[index];
+        if (value instanceof Upvalue) {
+            return ((Upvalue) value).value;
         }
+        return value;
     }
 
-
     //This method is specific for the unary operation
     private void checkNumberOperand(Token operator, Object operand) {
         //If the operand is a double, then we return saying that there is essentially no error !
@@ -495,7 +745,7 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     }
 
 
-    private boolean isTruthy(Object object) {
+    static boolean isTruthy(Object object) {
         //Null is false
         if (object == null) return false;
         //If the object is an instance of boolean type then return that
@@ -516,22 +766,55 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
 
     //This is a wrapper around the entire interpreter class to prevent exposing the internal methods
-    void interpret(List<Stmt> statements) {
+    void interpret(PandiScript script, ErrorReporter reporter) {
         try{
-            for (Stmt statement : statements) {
-                execute(statement);
-            }
+            run(script);
         } catch (RuntimeError error) {
-            pandi.runtimeError(error);
+            //What the script printed before it failed comes out before the error
+            flush();
+            reporter.runtimeError(error);
+        } finally {
+            //Whatever else it failed with, like a StackOverflowError, does not lose the output
+            flush();
         }
     }
 
+    //Runs the top level code of a script, a runtime error is left to the caller.
+    // For the embedder a script ending in an expression statement gives back its value
+    Object run(PandiScript script) {
+        globals.ensureCapacity(script.globals);
+        //The top level code gets a frame for the locals of its blocks
+        frame = new Object[script.frameSize];
 
-    private String stringify(Object object) {
+        List<Stmt> statements = script.statements;
+        int last = statements.size() - 1;
+        for (int i = 0; i < last; i++) {
+            execute(statements.get(i));
+        }
+        if (last < 0) return null;
+
+        if (statements.get(last) instanceof Stmt.Expression) {
+            return evaluate(((Stmt.Expression) statements.get(last)).expression);
+        }
+        execute(statements.get(last));
+        return null;
+    }
+
+
+    static String stringify(Object object) {
         if (object == null) return "nil";
 
         if (object instanceof Double) {
-            String text = object.toString();
+            double number = (double) object;
+            //Whole numbers print without the ".0", straight from the long instead of cutting
+            // it off the end of the string. Past 1e7 Double.toString switches to "1.0E7"
+            // which stays as it is, and -0.0 keeps its sign.
+            if (number == (long) number && Math.abs(number) < 1e7
+                    && (number != 0 || 1 / number > 0)) {
+                return Long.toString((long) number);
+            }
+            String text = Double.toString(number);
+            //Only -0.0 gets here and still ends in ".0"
             if (text.endsWith(".0")) {
                 text = text.substring(0, text.length() - 2);
             }
@@ -0,0 +1,16 @@
+package com.craftinginterpreters.pandi;
+
+//Remembers which method a call site found and on which class it looked.
+// The class of a site like 'super.method' only changes when the class is declared again,
+// so as long as the site sees the same class object the method can be reused as is.
+// Both fields are kept together in one object, so a site never sees a class paired
+// with the method of another class.
+final class MethodCache {
+    final pandiClass klass;
+    final pandiFunction method;
+
+    MethodCache(pandiClass klass, pandiFunction method) {
+        this.klass = klass;
+        this.method = method;
+    }
+}
@@ -0,0 +1,161 @@
+package com.craftinginterpreters.pandi;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.List;
+
+//The functions every pandi program starts with.
+// They are defined into each new set of globals, there is nothing static about them.
+final class Natives {
+    private Natives() {
+    }
+
+    static void define(Environment globals) {
+        // So we define a global function called the clock where the function returns the
+        // current time (This is a callable native function that we have defined)
+        globals.define("clock", new pandiCallable() {
+            @Override
+            public int arity() {
+                return 0;
+            }
+
+            @Override
+            public Object call(Interpreter interpreter, List<Object> arguments) {
+                return call0(interpreter);
+            }
+
+            @Override
+            public Object call0(Interpreter interpreter) {
+                return (double)System.currentTimeMillis() / 1000;
+            }
+
+            @Override
+            public String toString() {
+                return "<native fn>";
+            }
+        });
+
+        //*** FUNCTION TO PRINT PANDI LOL****//
+        globals.define("PANDI", new pandiCallable() {
+
+
+            @Override
+            public int arity() {
+                return 0;
+            }
+
+            @Override
+            public Object call(Interpreter interpreter, List<Object> arguments) {
+                return call0(interpreter);
+            }
+
+            @Override
+            public Object call0(Interpreter interpreter) {
+                return """
+                                                    ╱|、
+                                                  (˚ˎ 。7 \s
+                                                   |、˜〵         \s
+                                                   じしˍ,)ノ\
+                        """ + "\n meoowwww";
+            }
+
+            @Override
+            public String toString() {
+                return "";
+            }
+        });
+
+        //Runs a function on a virtual thread and returns its task, see pandiTask
+        globals.define("spawn", new pandiNative("spawn", 1, (interpreter, arguments) -> {
+            Object function = arguments.get(0);
+            if (!(function instanceof pandiCallable) || ((pandiCallable) function).arity() != 0) {
+                throw new RuntimeError("Can only spawn a function that takes no arguments.");
+            }
+            return new pandiTask(interpreter.fork(), (pandiCallable) function);
+        }));
+
+        //Channel(capacity) for a bounded channel, Channel(nil) for an unbounded one
+        globals.define("Channel", new pandiNative("Channel", 1, (interpreter, arguments) -> {
+            Object capacity = arguments.get(0);
+            if (capacity == null) return new pandiChannel(Integer.MAX_VALUE);
+
+            if (!(capacity instanceof Double) || (double) capacity < 1
+                    || (double) capacity != Math.floor((double) capacity)) {
+                throw new RuntimeError("Channel capacity must be a positive whole number or nil.");
+            }
+            return new pandiChannel((int) Math.min((double) capacity, Integer.MAX_VALUE));
+        }));
+
+        //Takes any number of channels
+        globals.define("select", new pandiNative("select", -1,
+                (interpreter, arguments) -> pandiChannel.select(arguments)));
+
+        //List(a, b, ...) takes any number of values
+        globals.define("List", new pandiNative("List", -1,
+                (interpreter, arguments) -> new pandiList(arguments.toArray())));
+
+        globals.define("Map", new pandiNative("Map", 0, (interpreter, arguments) -> new pandiMap()));
+
+        //DoubleArray, Bytes, Vec, lines and csv, which need the preview API
+        Preview.define(globals);
+
+        //The whole of a (small) UTF-8 file as one string
+        globals.define("readAll", new pandiNative("readAll", 1, (interpreter, arguments) -> {
+            Object path = arguments.get(0);
+            if (!(path instanceof String)) throw new RuntimeError("A path must be a string.");
+            try {
+                Path file = Path.of((String) path);
+                //The most an array (and so a string) can hold, the same as for a line in lines()
+                if (Files.size(file) > Integer.MAX_VALUE - 8) {
+                    throw new RuntimeError("Can't read '" + path + "': too big to be a string.");
+                }
+                return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            } catch (IOException | RuntimeException e) {
+                throw cantRead(path, e);
+            }
+        }));
+
+        //Run the function over the list on a fork-join pool, see Parallel
+        globals.define("parallelMap", new pandiNative("parallelMap", 2,
+                (interpreter, arguments) -> Parallel.map(interpreter, arguments.get(0), arguments.get(1))));
+        globals.define("parallelFilter", new pandiNative("parallelFilter", 2,
+                (interpreter, arguments) -> Parallel.filter(interpreter, arguments.get(0), arguments.get(1))));
+        globals.define("parallelReduce", new pandiNative("parallelReduce", 3,
+                (interpreter, arguments) -> Parallel.reduce(interpreter, arguments.get(0),
+                        arguments.get(1), arguments.get(2))));
+
+        //Writes out whatever print has buffered so far
+        globals.define("flush", new pandiCallable() {
+            @Override
+            public int arity() {
+                return 0;
+            }
+
+            @Override
+            public Object call(Interpreter interpreter, List<Object> arguments) {
+                return call0(interpreter);
+            }
+
+            @Override
+            public Object call0(Interpreter interpreter) {
+                interpreter.flush();
+                return null;
+            }
+
+            @Override
+            public String toString() {
+                return "<native fn>";
+            }
+        });
+    }
+
+    //For the natives that read files, the message of a NoSuchFileException is nothing but the path
+    static RuntimeError cantRead(Object path, Throwable e) {
+        if (e instanceof RuntimeError) return (RuntimeError) e;
+        if (e instanceof NoSuchFileException) return new RuntimeError("Can't read '" + path + "': no such file.");
+        return new RuntimeError("Can't read '" + path + "': " + e.getMessage());
+    }
+}
@@ -0,0 +1,113 @@
+package com.craftinginterpreters.pandi;
+
+import java.util.List;
+import java.util.Map;
+
+//A set of globals to run compiled scripts in, made by PandiEngine.newContext().
+// The globals of a context are its own, two contexts never see each other's variables.
+// A context runs one script at a time on one thread (the tasks its scripts spawn get
+// contexts of their own), use a context per thread to run scripts in parallel.
+//
+// Values go in and come out as pandi values: numbers are Doubles (any Java Number handed
+// in is turned into one), strings, Booleans and null for nil. Other Java objects can be
+// handed in too, scripts can pass them around and print them.
+public final class PandiContext {
+    private final Interpreter interpreter;
+
+    PandiContext(Interpreter interpreter) {
+        this.interpreter = interpreter;
+    }
+
+    //Runs the top level code of the script, the globals it defines stay in the context.
+    // If the script ends in an expression statement its value is returned, else null
+    public Object run(PandiScript script) throws PandiException {
+        if (script.table != interpreter.globals.table) {
+            throw new IllegalArgumentException("The script was compiled by another engine.");
+        }
+
+        try {
+            return interpreter.run(script);
+        } catch (RuntimeError error) {
+            throw exception(error);
+        } finally {
+            interpreter.flush();
+        }
+    }
+
+    //Calls the function (or class) held by a global with the given arguments
+    public Object invoke(String name, Object... arguments) throws PandiException {
+        Object function = get(name);
+        if (!(function instanceof pandiCallable)) {
+            throw new PandiException(List.of("Undefined function '" + name + "'."));
+        }
+        return call(function, arguments);
+    }
+
+    //Calls a function value the scripts handed out (a method of an instance for example)
+    Object call(Object function, Object... arguments) throws PandiException {
+        pandiCallable callable = (pandiCallable) function;
+        if (callable.arity() >= 0 && callable.arity() != arguments.length) {
+            throw new PandiException(List.of("Expected " + callable.arity()
+                    + " arguments but got " + arguments.length + "."));
+        }
+
+        Object[] values = new Object[arguments.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = fromJava(arguments[i]);
+        }
+
+        try {
+            //The function runs on this thread, the interpreter puts back its own frame after
+            return callable.call(interpreter, values);
+        } catch (RuntimeError error) {
+            throw exception(error);
+        } finally {
+            interpreter.flush();
+        }
+    }
+
+    //The value of a global, null if it is nil or not defined
+    public Object get(String name) {
+        return interpreter.globals.find(name);
+    }
+
+    //Whether the global is defined, a global holding nil is
+    public boolean has(String name) {
+        return interpreter.globals.isDefined(name);
+    }
+
+    //Defines a global for the scripts run in this context to use
+    public void set(String name, Object value) {
+        interpreter.globals.define(name, fromJava(value));
+    }
+
+    //Takes a global out again, as if it had never been defined
+    public void remove(String name) {
+        interpreter.globals.undefine(name);
+    }
+
+    //Every global defined in the context, the natives included
+    public Map<String, Object> globals() {
+        return interpreter.globals.defined();
+    }
+
+    Interpreter interpreter() {
+        return interpreter;
+    }
+
+    private static Object fromJava(Object value) {
+        if (value instanceof Double) return value;
+        if (value instanceof Number) return ((Number) value).doubleValue();
+        if (value instanceof Character) return value.toString();
+        return value;
+    }
+
+    private static PandiException exception(RuntimeError error) {
+        //A native called straight from Java has no call site to blame
+        if (error.token == null) return new PandiException(List.of(error.getMessage()));
+
+        ErrorReporter reporter = new ErrorReporter();
+        reporter.runtimeError(error);
+        return new PandiException(reporter.messages());
+    }
+}
@@ -0,0 +1,171 @@
+package com.craftinginterpreters.pandi;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+//Keeps a fixed number of contexts ready for a service that runs a script per request.
+//
+//  PandiContextPool pool = new PandiContextPool(engine, 16, engine.compile(library));
+//  pool.warmUp(engine.compile(typicalRequest), 10000);
+//  Object result = pool.run(script);     //or acquire(), run, release()
+//
+// The prelude (the natives and what the library script defines) is set up once. Every
+// context of the pool starts out sharing the prelude's globals and copies a block of them
+// only when it writes to one, so handing a context back only has to drop its copies.
+// The values themselves are not copied, so the library may only leave values in its globals
+// that nothing can change: nil, numbers, strings, booleans, and functions and classes that
+// do not capture variables. A list, map or instance would be the same object in every
+// context and one request could change what the next one sees, the pool refuses those.
+//
+// A context is reset when it is released, anything its script spawned must be done by then.
+public final class PandiContextPool {
+    private final PandiEngine engine;
+    private final BlockingQueue<PandiContext> idle;
+    //Every context of the pool, and the ones acquired and not released yet
+    private final Set<PandiContext> contexts = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<PandiContext> acquired =
+            Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder resets = new LongAdder();
+    private final LongAdder resetNanos = new LongAdder();
+
+    //The prelude script may be null, then the contexts start out with just the natives
+    public PandiContextPool(PandiEngine engine, int size, PandiScript prelude) throws PandiException {
+        if (size < 1) throw new IllegalArgumentException("A pool needs at least one context.");
+        this.engine = engine;
+        this.idle = new ArrayBlockingQueue<>(size);
+
+        PandiContext setup = engine.newContext();
+        Environment globals = setup.interpreter().globals;
+        //The natives come with every context anyway, only what the prelude made is checked
+        Set<Object> natives = Collections.newSetFromMap(new IdentityHashMap<>());
+        natives.addAll(globals.defined().values());
+        if (prelude != null) setup.run(prelude);
+
+        List<String> errors = new ArrayList<>();
+        for (Map.Entry<String, Object> global : globals.defined().entrySet()) {
+            Object value = global.getValue();
+            if (!natives.contains(value) && !isImmutable(value)) {
+                errors.add("The prelude leaves a value that can change in '" + global.getKey()
+                        + "', every context of the pool would share it.");
+            }
+        }
+        if (!errors.isEmpty()) throw new PandiException(errors);
+
+        for (int i = 0; i < size; i++) {
+            PandiContext context = engine.newContext(new Environment(globals));
+            contexts.add(context);
+            idle.add(context);
+        }
+    }
+
+    private static boolean isImmutable(Object value) {
+        if (value == null || value instanceof Double || value instanceof Boolean
+                || value instanceof String) {
+            return true;
+        }
+        if (value instanceof pandiFunction) return ((pandiFunction) value).isSelfContained();
+        if (value instanceof pandiClass) return ((pandiClass) value).isSelfContained();
+        return false;
+    }
+
+    //Runs the script 'runs' times over the contexts of the pool before it serves requests, so
+    // the first ones do not pay for the JVM still interpreting the interpreter and for the
+    // caches of the call sites being empty. The contexts are reset after, and the runs are not
+    // counted by the metrics. What the script prints goes to the pool's output as usual.
+    public void warmUp(PandiScript script, int runs) throws PandiException, InterruptedException {
+        for (int i = 0; i < runs; i++) {
+            PandiContext context = idle.take();
+            try {
+                context.run(script);
+            } finally {
+                context.interpreter().globals.reset();
+                idle.add(context);
+            }
+        }
+    }
+
+    //A context from the pool, waits for one to be released if they are all in use
+    public PandiContext acquire() throws InterruptedException {
+        PandiContext context = idle.poll();
+        if (context != null) {
+            hits.increment();
+        } else {
+            waits.increment();
+            long start = System.nanoTime();
+            try {
+                context = idle.take();
+            } finally {
+                waitNanos.add(System.nanoTime() - start);
+            }
+        }
+        acquired.add(context);
+        return context;
+    }
+
+    //Hands the context back, with its globals back to the prelude's. Checked before anything
+    // is touched: a context handed back twice would be in the queue twice, and go to two
+    // callers at the same time.
+    public void release(PandiContext context) {
+        if (!contexts.contains(context)) {
+            throw new IllegalStateException("The context does not belong to this pool.");
+        }
+        if (!acquired.remove(context)) {
+            throw new IllegalStateException("The context has already been released.");
+        }
+
+        long start = System.nanoTime();
+        context.interpreter().globals.reset();
+        resets.increment();
+        resetNanos.add(System.nanoTime() - start);
+
+        idle.add(context);
+    }
+
+    //Runs a script in a context of the pool
+    public Object run(PandiScript script) throws PandiException, InterruptedException {
+        PandiContext context = acquire();
+        try {
+            return context.run(script);
+        } finally {
+            release(context);
+        }
+    }
+
+    //Acquires that found a context ready
+    public long hits() {
+        return hits.sum();
+    }
+
+    //Acquires that had to wait for a context to be released, and how long they waited in all
+    public long waits() {
+        return waits.sum();
+    }
+
+    public long waitNanos() {
+        return waitNanos.sum();
+    }
+
+    //Contexts reset on release, and how long the resets took in all
+    public long resets() {
+        return resets.sum();
+    }
+
+    public long resetNanos() {
+        return resetNanos.sum();
+    }
+
+    public PandiEngine engine() {
+        return engine;
+    }
+}
@@ -0,0 +1,65 @@
+package com.craftinginterpreters.pandi;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.List;
+
+//The entry point for running pandi from Java.
+//
+//  PandiEngine engine = new PandiEngine();
+//  PandiScript script = engine.compile(source);      //once
+//  PandiContext context = engine.newContext();         //per tenant, request, ...
+//  context.run(script);
+//
+// An engine holds nothing static, a JVM can have any number of them. Scripts compiled by an
+// engine can be shared by all of its contexts and threads. The engine's one piece of shared
+// state is the table of global names, which is how a compiled script finds its globals at
+// the same index in every context.
+public final class PandiEngine {
+    private final GlobalTable globals = new GlobalTable();
+    //The contexts that print to standard output share one buffer, made with the first of them
+    private PrintWriter standardOutput;
+
+    public PandiScript compile(String source) throws PandiException {
+        ErrorReporter reporter = new ErrorReporter();
+        Parser parser = new Parser(new Scanner(source, reporter).scanTokens(), reporter);
+        List<Stmt> statements = parser.parse();
+        if (reporter.hadError) throw new PandiException(reporter.messages());
+
+        PandiScript script;
+        //Compiles take turns at resolving, the resolver adds to the table of globals and
+        // records their declarations for the inliner
+        synchronized (globals) {
+            script = PandiScript.compile(statements, new Resolver(globals, reporter), globals,
+                    reporter);
+        }
+        if (script == null) throw new PandiException(reporter.messages());
+        return script;
+    }
+
+    //A context that prints to standard output
+    public PandiContext newContext() {
+        return newContext(standardOutput());
+    }
+
+    //A context whose scripts print to 'out' (flushed at the end of every run)
+    public PandiContext newContext(Writer out) {
+        return newContext(new PrintWriter(out, false));
+    }
+
+    private PandiContext newContext(PrintWriter out) {
+        Environment environment = new Environment(globals);
+        Natives.define(environment);
+        return new PandiContext(Interpreter.newInterpreter(environment, out));
+    }
+
+    //A context on globals that have been set up already, for the pool
+    PandiContext newContext(Environment environment) {
+        return new PandiContext(Interpreter.newInterpreter(environment, standardOutput()));
+    }
+
+    private synchronized PrintWriter standardOutput() {
+        if (standardOutput == null) standardOutput = Interpreter.standardOutput();
+        return standardOutput;
+    }
+}
@@ -0,0 +1,18 @@
+package com.craftinginterpreters.pandi;
+
+import java.util.List;
+
+//Thrown at the embedder when a script does not compile (with every error the front end
+// found) or fails while running (with the runtime error and its line).
+public class PandiException extends Exception {
+    private final List<String> errors;
+
+    PandiException(List<String> errors) {
+        super(String.join("\n", errors));
+        this.errors = List.copyOf(errors);
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+}
@@ -0,0 +1,45 @@
+package com.craftinginterpreters.pandi;
+
+import java.util.Collections;
+import java.util.List;
+
+//A script that has been through the whole front end: scanned, parsed, resolved, with its
+// small functions inlined and its nodes specialized. Nothing changes it after that, so a
+// script compiled once runs any number of times, in any context of the engine that compiled
+// it, on any number of threads at once.
+// (The only thing written while it runs is the method cache of a 'super' site, which is
+// replaced as a whole and is checked against the class before it is used.)
+public final class PandiScript {
+    //The globals of the script have their slots in this table
+    final GlobalTable table;
+    final List<Stmt> statements;
+    //The frame of the top level code, for the locals of its blocks and the inlined calls
+    final int frameSize;
+    //Every global the script uses has an index below this
+    final int globals;
+
+    private PandiScript(GlobalTable table, List<Stmt> statements, int frameSize) {
+        this.table = table;
+        this.statements = Collections.unmodifiableList(statements);
+        this.frameSize = frameSize;
+        this.globals = table.size();
+    }
+
+    //Everything after parsing. Returns null if the resolver reported an error
+    static PandiScript compile(List<Stmt> statements, Resolver resolver, GlobalTable table,
+                               ErrorReporter reporter) {
+        resolver.resolve(statements);
+
+        //Stop if there is a resolution error
+        if (reporter.hadError) return null;
+
+        //Copy the small helper functions into their call sites
+        Inliner inliner = new Inliner(resolver.frameSize());
+        inliner.inline(statements);
+
+        //Fuse the common shapes of nodes into single nodes
+        new Specializer().rewrite(statements);
+
+        return new PandiScript(table, statements, inliner.frameSize());
+    }
+}
@@ -0,0 +1,357 @@
+package com.craftinginterpreters.pandi;
+
+import javax.script.AbstractScriptEngine;
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.Invocable;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngineFactory;
+import javax.script.ScriptException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.AbstractMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+//pandi behind javax.script, on top of a PandiEngine.
+// The engine scope bindings are a pandi context: a script's globals are the bindings and
+// whatever is put into the bindings is a global (numbers come in as Doubles).
+// Sources given to eval() are compiled once and kept, so evaluating the same source again
+// skips the scanner, parser and resolver, compile() gives back a script to keep around.
+// Like the contexts it is built on, an engine runs one script at a time.
+public class PandiScriptEngine extends AbstractScriptEngine implements Compilable, Invocable {
+    //How many sources eval(String) keeps compiled, -Dpandi.script.cache to change it
+    private static final int CACHE_SIZE = Integer.getInteger("pandi.script.cache", 64);
+
+    private final PandiScriptEngineFactory factory;
+    private final PandiEngine engine = new PandiEngine();
+    //Least recently used source goes first
+    private final Map<String, PandiScript> compiled = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PandiScript> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    //print goes to the writer of the ScriptContext that is being evaluated in
+    private final Output output = new Output();
+
+    PandiScriptEngine(PandiScriptEngineFactory factory) {
+        this.factory = factory;
+        context.setBindings(createBindings(), ScriptContext.ENGINE_SCOPE);
+    }
+
+    @Override
+    public Bindings createBindings() {
+        return new PandiBindings(engine.newContext(output));
+    }
+
+    @Override
+    public ScriptEngineFactory getFactory() {
+        return factory;
+    }
+
+    @Override
+    public Object eval(String script, ScriptContext context) throws ScriptException {
+        return eval(compiled(script), context);
+    }
+
+    @Override
+    public Object eval(Reader reader, ScriptContext context) throws ScriptException {
+        return eval(read(reader), context);
+    }
+
+    @Override
+    public CompiledScript compile(String script) throws ScriptException {
+        return new Compiled(compile(script, false));
+    }
+
+    @Override
+    public CompiledScript compile(Reader script) throws ScriptException {
+        return compile(read(script));
+    }
+
+    @Override
+    public Object invokeFunction(String name, Object... args)
+            throws ScriptException, NoSuchMethodException {
+        PandiContext pandiContext = contextOf(context.getBindings(ScriptContext.ENGINE_SCOPE));
+        if (!(pandiContext.get(name) instanceof pandiCallable)) {
+            throw new NoSuchMethodException(name);
+        }
+
+        output.target = context.getWriter();
+        try {
+            return pandiContext.invoke(name, args);
+        } catch (PandiException e) {
+            throw scriptException(e);
+        }
+    }
+
+    @Override
+    public Object invokeMethod(Object thiz, String name, Object... args)
+            throws ScriptException, NoSuchMethodException {
+        Object method = property(thiz, name);
+        if (!(method instanceof pandiCallable)) {
+            throw new NoSuchMethodException(name);
+        }
+
+        output.target = context.getWriter();
+        try {
+            return contextOf(context.getBindings(ScriptContext.ENGINE_SCOPE)).call(method, args);
+        } catch (PandiException e) {
+            throw scriptException(e);
+        }
+    }
+
+    //Each method of the interface calls the global function with its name
+    @Override
+    public <T> T getInterface(Class<T> clasz) {
+        PandiContext pandiContext = contextOf(context.getBindings(ScriptContext.ENGINE_SCOPE));
+        for (Method method : clasz.getMethods()) {
+            if (!(pandiContext.get(method.getName()) instanceof pandiCallable)) return null;
+        }
+        return proxy(clasz, null);
+    }
+
+    //Each method of the interface calls the method of 'thiz' with its name
+    @Override
+    public <T> T getInterface(Object thiz, Class<T> clasz) {
+        if (!(thiz instanceof pandiInstance) && !(thiz instanceof pandiObject)) {
+            throw new IllegalArgumentException("Not a pandi object: " + thiz);
+        }
+        for (Method method : clasz.getMethods()) {
+            if (!(property(thiz, method.getName()) instanceof pandiCallable)) return null;
+        }
+        return proxy(clasz, thiz);
+    }
+
+    private <T> T proxy(Class<T> clasz, Object thiz) {
+        Object proxy = Proxy.newProxyInstance(clasz.getClassLoader(), new Class<?>[] {clasz},
+                (self, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        switch (method.getName()) {
+                            case "equals": return self == args[0];
+                            case "hashCode": return System.identityHashCode(self);
+                            default: return "pandi " + clasz.getSimpleName();
+                        }
+                    }
+
+                    Object[] arguments = args == null ? new Object[0] : args;
+                    Object result = thiz == null
+                            ? invokeFunction(method.getName(), arguments)
+                            : invokeMethod(thiz, method.getName(), arguments);
+                    return toJava(result, method.getReturnType());
+                });
+        return clasz.cast(proxy);
+    }
+
+    private Object eval(PandiScript script, ScriptContext context) throws ScriptException {
+        output.target = context.getWriter();
+        Bindings bindings = context.getBindings(ScriptContext.ENGINE_SCOPE);
+        try {
+            if (bindings instanceof PandiBindings) {
+                return ((PandiBindings) bindings).context.run(script);
+            }
+
+            //Bindings of another kind are copied into a context, and the globals the script
+            // defined or changed are copied back after (the natives stay out of them)
+            PandiContext pandiContext = contextOf(bindings);
+            Map<String, Object> before = pandiContext.globals();
+            try {
+                return pandiContext.run(script);
+            } finally {
+                for (Map.Entry<String, Object> global : pandiContext.globals().entrySet()) {
+                    String name = global.getKey();
+                    if (!before.containsKey(name) || before.get(name) != global.getValue()) {
+                        bindings.put(name, global.getValue());
+                    }
+                }
+            }
+        } catch (PandiException e) {
+            throw scriptException(e);
+        }
+    }
+
+    private PandiContext contextOf(Bindings bindings) {
+        if (bindings instanceof PandiBindings) return ((PandiBindings) bindings).context;
+
+        PandiContext pandiContext = engine.newContext(output);
+        if (bindings != null) {
+            for (Map.Entry<String, Object> entry : bindings.entrySet()) {
+                pandiContext.set(entry.getKey(), entry.getValue());
+            }
+        }
+        return pandiContext;
+    }
+
+    private PandiScript compiled(String source) throws ScriptException {
+        return compile(source, true);
+    }
+
+    private PandiScript compile(String source, boolean keep) throws ScriptException {
+        synchronized (compiled) {
+            PandiScript script = compiled.get(source);
+            if (script != null) return script;
+        }
+
+        try {
+            PandiScript script = engine.compile(source);
+            if (keep) {
+                synchronized (compiled) {
+                    compiled.put(source, script);
+                }
+            }
+            return script;
+        } catch (PandiException e) {
+            throw scriptException(e);
+        }
+    }
+
+    //A property of an instance or of a native object, null if it has none by that name
+    private static Object property(Object thiz, String name) {
+        Token token = new Token(TokenType.IDENTIFIER, name, null, 0);
+        try {
+            if (thiz instanceof pandiInstance) return ((pandiInstance) thiz).get(token);
+            if (thiz instanceof pandiObject) return ((pandiObject) thiz).get(token);
+        } catch (RuntimeError e) {
+            return null;
+        }
+        throw new IllegalArgumentException("Not a pandi object: " + thiz);
+    }
+
+    //pandi numbers are doubles, an interface method may want another kind of number
+    private static Object toJava(Object value, Class<?> type) {
+        if (!(value instanceof Double)) return value;
+
+        double number = (double) value;
+        if (type == int.class || type == Integer.class) return (int) number;
+        if (type == long.class || type == Long.class) return (long) number;
+        if (type == float.class || type == Float.class) return (float) number;
+        if (type == short.class || type == Short.class) return (short) number;
+        if (type == byte.class || type == Byte.class) return (byte) number;
+        return value;
+    }
+
+    private static ScriptException scriptException(PandiException e) {
+        ScriptException exception = new ScriptException(e.getMessage());
+        exception.initCause(e);
+        return exception;
+    }
+
+    private static String read(Reader reader) throws ScriptException {
+        StringWriter source = new StringWriter();
+        try {
+            reader.transferTo(source);
+        } catch (IOException e) {
+            throw new ScriptException(e);
+        }
+        return source.toString();
+    }
+
+    private final class Compiled extends CompiledScript {
+        private final PandiScript script;
+
+        Compiled(PandiScript script) {
+            this.script = script;
+        }
+
+        @Override
+        public Object eval(ScriptContext context) throws ScriptException {
+            return PandiScriptEngine.this.eval(script, context);
+        }
+
+        @Override
+        public PandiScriptEngine getEngine() {
+            return PandiScriptEngine.this;
+        }
+    }
+
+    //The engine scope bindings, backed by the globals of a context
+    static final class PandiBindings extends AbstractMap<String, Object> implements Bindings {
+        final PandiContext context;
+        //What a new context starts out with, the natives
+        private final Map<String, Object> natives;
+
+        PandiBindings(PandiContext context) {
+            this.context = context;
+            this.natives = context.globals();
+        }
+
+        @Override
+        public Object put(String name, Object value) {
+            Object previous = context.get(checkKey(name));
+            context.set(name, value);
+            return previous;
+        }
+
+        @Override
+        public Object get(Object key) {
+            return context.get(checkKey(key));
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return context.has(checkKey(key));
+        }
+
+        @Override
+        public Object remove(Object key) {
+            Object previous = context.get(checkKey(key));
+            context.remove((String) key);
+            return previous;
+        }
+
+        //Takes out what the scripts and put() defined, the natives stay (a native a script
+        // defined over is put back)
+        @Override
+        public void clear() {
+            for (Map.Entry<String, Object> global : context.globals().entrySet()) {
+                String name = global.getKey();
+                if (!natives.containsKey(name)) {
+                    context.remove(name);
+                } else if (natives.get(name) != global.getValue()) {
+                    context.set(name, natives.get(name));
+                }
+            }
+        }
+
+        //A copy, changing it does not change the globals
+        @Override
+        public Set<Map.Entry<String, Object>> entrySet() {
+            return context.globals().entrySet();
+        }
+
+        //What the Bindings contract asks of a key
+        private static String checkKey(Object key) {
+            if (key == null) throw new NullPointerException("key can not be null");
+            if (!(key instanceof String)) throw new ClassCastException("key should be a String");
+            if (((String) key).isEmpty()) throw new IllegalArgumentException("key can not be empty");
+            return (String) key;
+        }
+    }
+
+    //Forwards print to whichever writer the script is being evaluated with
+    private static final class Output extends Writer {
+        volatile Writer target;
+
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+            if (target != null) target.write(buffer, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (target != null) target.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
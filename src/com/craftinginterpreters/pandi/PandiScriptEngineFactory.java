@@ -0,0 +1,87 @@
+package com.craftinginterpreters.pandi;
+
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+import java.util.List;
+
+//Lets javax.script find pandi: new ScriptEngineManager().getEngineByName("pandi").
+// (It is listed in META-INF/services/javax.script.ScriptEngineFactory)
+public class PandiScriptEngineFactory implements ScriptEngineFactory {
+    private static final String VERSION = "1.0";
+
+    @Override
+    public String getEngineName() {
+        return "pandi";
+    }
+
+    @Override
+    public String getEngineVersion() {
+        return VERSION;
+    }
+
+    @Override
+    public List<String> getExtensions() {
+        return List.of("pandi");
+    }
+
+    @Override
+    public List<String> getMimeTypes() {
+        return List.of("application/x-pandi", "text/x-pandi");
+    }
+
+    @Override
+    public List<String> getNames() {
+        return List.of("pandi", "Pandi");
+    }
+
+    @Override
+    public String getLanguageName() {
+        return "pandi";
+    }
+
+    @Override
+    public String getLanguageVersion() {
+        return VERSION;
+    }
+
+    @Override
+    public Object getParameter(String key) {
+        switch (key) {
+            case ScriptEngine.ENGINE: return getEngineName();
+            case ScriptEngine.ENGINE_VERSION: return getEngineVersion();
+            case ScriptEngine.NAME: return getNames().get(0);
+            case ScriptEngine.LANGUAGE: return getLanguageName();
+            case ScriptEngine.LANGUAGE_VERSION: return getLanguageVersion();
+            //An engine runs one script at a time, make an engine per thread
+            default: return null;
+        }
+    }
+
+    @Override
+    public String getMethodCallSyntax(String obj, String m, String... args) {
+        return obj + "." + m + "(" + String.join(", ", args) + ")";
+    }
+
+    @Override
+    public String getOutputStatement(String toDisplay) {
+        //pandi strings have no escapes
+        return "print \"" + toDisplay + "\";";
+    }
+
+    @Override
+    public String getProgram(String... statements) {
+        StringBuilder program = new StringBuilder();
+        for (String statement : statements) {
+            program.append(statement);
+            //A statement that already ends its own would get an empty one after it
+            if (!statement.trim().endsWith(";")) program.append(';');
+            program.append('\n');
+        }
+        return program.toString();
+    }
+
+    @Override
+    public ScriptEngine getScriptEngine() {
+        return new PandiScriptEngine(this);
+    }
+}
@@ -0,0 +1,164 @@
+package com.craftinginterpreters.pandi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+//parallelMap, parallelFilter and parallelReduce: the list is split into slices that run on a
+// fork-join pool, every slice in an execution context of its own from fork().
+// The function is called from several threads at once. Instances and captured variables it
+// writes to are shared by all of them, like they are with spawn().
+// The common pool is used unless -Dpandi.parallelism gives the number of threads to use.
+final class Parallel {
+    private static final ForkJoinPool POOL = pool();
+
+    //How many slices each thread of the pool gets, so a slow slice does not hold up the rest
+    private static final int SLICES_PER_THREAD = 8;
+
+    private Parallel() {
+    }
+
+    private static ForkJoinPool pool() {
+        Integer parallelism = Integer.getInteger("pandi.parallelism");
+        return parallelism == null ? ForkJoinPool.commonPool() : new ForkJoinPool(parallelism);
+    }
+
+    //A new list with fn(value) for every value of the list, in the same order
+    static pandiList map(Interpreter interpreter, Object list, Object function) {
+        Object[] items = items(list);
+        pandiCallable fn = function(function, 1);
+
+        Object[] results = new Object[items.length];
+        POOL.invoke(new Slices(interpreter, (context, from, to) -> {
+            for (int i = from; i < to; i++) {
+                results[i] = fn.call1(context, items[i]);
+            }
+        }, 0, items.length, grain(items.length)));
+        return new pandiList(results);
+    }
+
+    //A new list with the values of the list that fn(value) is truthy for, in the same order
+    static pandiList filter(Interpreter interpreter, Object list, Object function) {
+        Object[] items = items(list);
+        pandiCallable fn = function(function, 1);
+
+        boolean[] keep = new boolean[items.length];
+        POOL.invoke(new Slices(interpreter, (context, from, to) -> {
+            for (int i = from; i < to; i++) {
+                keep[i] = Interpreter.isTruthy(fn.call1(context, items[i]));
+            }
+        }, 0, items.length, grain(items.length)));
+
+        List<Object> kept = new ArrayList<>();
+        for (int i = 0; i < items.length; i++) {
+            if (keep[i]) kept.add(items[i]);
+        }
+        return new pandiList(kept.toArray());
+    }
+
+    //Folds the list with fn(accumulated, value). Every slice starts from the identity and
+    // the slices are combined with fn too, so fn has to be associative and the identity has
+    // to leave a value as it is (0 for +, 1 for *) to get what a loop would
+    static Object reduce(Interpreter interpreter, Object list, Object identity, Object function) {
+        Object[] items = items(list);
+        pandiCallable fn = function(function, 2);
+
+        return POOL.invoke(new Fold(interpreter, items, identity, fn, 0, items.length,
+                grain(items.length)));
+    }
+
+    private static Object[] items(Object list) {
+        if (!(list instanceof pandiList)) throw new RuntimeError("Expected a list.");
+        //A copy, so the list can change while the slices run without them noticing
+        return ((pandiList) list).toArray();
+    }
+
+    private static pandiCallable function(Object function, int arity) {
+        if (!(function instanceof pandiCallable) || ((pandiCallable) function).arity() != arity) {
+            throw new RuntimeError("Expected a function that takes " + arity
+                    + (arity == 1 ? " argument." : " arguments."));
+        }
+        return (pandiCallable) function;
+    }
+
+    private static int grain(int size) {
+        return Math.max(1, size / (POOL.getParallelism() * SLICES_PER_THREAD));
+    }
+
+    //What a slice does with its part of the list
+    private interface Body {
+        void run(Interpreter context, int from, int to);
+    }
+
+    //Splits [from, to) in halves until a slice is no bigger than the grain
+    private static final class Slices extends RecursiveAction {
+        private final Interpreter parent;
+        private final Body body;
+        private final int from;
+        private final int to;
+        private final int grain;
+
+        Slices(Interpreter parent, Body body, int from, int to, int grain) {
+            this.parent = parent;
+            this.body = body;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                body.run(parent.fork(), from, to);
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new Slices(parent, body, from, middle, grain),
+                    new Slices(parent, body, middle, to, grain));
+        }
+    }
+
+    private static final class Fold extends RecursiveTask<Object> {
+        private final Interpreter parent;
+        private final Object[] items;
+        private final Object identity;
+        private final pandiCallable fn;
+        private final int from;
+        private final int to;
+        private final int grain;
+
+        Fold(Interpreter parent, Object[] items, Object identity, pandiCallable fn,
+             int from, int to, int grain) {
+            this.parent = parent;
+            this.items = items;
+            this.identity = identity;
+            this.fn = fn;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected Object compute() {
+            if (to - from <= grain) {
+                Interpreter context = parent.fork();
+                Object accumulated = identity;
+                for (int i = from; i < to; i++) {
+                    accumulated = fn.call2(context, accumulated, items[i]);
+                }
+                return accumulated;
+            }
+
+            int middle = (from + to) >>> 1;
+            Fold left = new Fold(parent, items, identity, fn, from, middle, grain);
+            Fold right = new Fold(parent, items, identity, fn, middle, to, grain);
+            left.fork();
+            Object rightValue = right.compute();
+            Object leftValue = left.join();
+            return fn.call2(parent.fork(), leftValue, rightValue);
+        }
+    }
+}
@@ -14,9 +14,20 @@ public class Parser {
     private final List<Token> tokens;
     //The tracker for letting us know at what position we are at in parsing the tokens
     private int current;
+    //Only set for the streaming mode, the tokens are then scanned as the parser gets to them
+    private final Scanner scanner;
+    private final ErrorReporter reporter;
 
-    Parser(List<Token> tokens) {
+    Parser(List<Token> tokens, ErrorReporter reporter) {
         this.tokens = tokens;
+        this.scanner = null;
+        this.reporter = reporter;
+    }
+
+    Parser(Scanner scanner, ErrorReporter reporter) {
+        this.tokens = new ArrayList<>();
+        this.scanner = scanner;
+        this.reporter = reporter;
     }
 
     List<Stmt> parse() {
@@ -27,6 +38,24 @@ public class Parser {
         return statements;
     }
 
+    //The streaming mode parses one top level declaration at a time and runs it before
+    // asking for the next one, instead of parsing the whole script into a list first.
+    boolean hasNext() {
+        return !isAtEnd();
+    }
+
+    Stmt next() {
+        Stmt statement = declaration();
+
+        //The tokens of the declaration are not needed anymore (the ones its tree refers to
+        // stay alive through the tree), previous() still looks one token back
+        if (scanner != null && current > 1) {
+            tokens.subList(0, current - 1).clear();
+            current = 1;
+        }
+        return statement;
+    }
+
 
     // The lowest precedence -> expression returns equality
     // Each grammar rule is a method and the body of it can contain either
@@ -353,6 +382,10 @@ public class Parser {
                 Expr.Get get = (Expr.Get)expr;
                 // if it is then we create a new AST for the set expression.
                 return new Expr.Set(get.object, get.name, value);
+            } else if (expr instanceof Expr.Index) {
+                //'list[i] = value' the same way
+                Expr.Index index = (Expr.Index)expr;
+                return new Expr.IndexSet(index.object, index.bracket, index.index, value);
             }
 
             error (equals, "Invalid assignment target.");
@@ -502,6 +535,12 @@ public class Parser {
                 Token name = consume(IDENTIFIER, "Expect property name after '.'");
                 //the expression is a new Get expression tree !
                 expr = new Expr.Get(expr, name);
+            } else if (match(LEFT_BRACKET)) {
+                //'list[i]', the bracket token is kept for the errors
+                Token bracket = previous();
+                Expr index = expression();
+                consume(RIGHT_BRACKET, "Expect ']' after index.");
+                expr = new Expr.Index(expr, bracket, index);
             }
             else {
                 break;
@@ -606,6 +645,9 @@ public class Parser {
     // Now if advance is called it advances the counter and returns the
     // token at current - 1.
     private Token peek() {
+        if (scanner != null && current == tokens.size()) {
+            tokens.add(scanner.nextToken());
+        }
         return tokens.get(current);
     }
 
@@ -616,7 +658,7 @@ public class Parser {
 
     //returning errors using the pandi's parse error method
     private ParseError error (Token token, String message) {
-        pandi.error(token, message);
+        reporter.error(token, message);
         return new ParseError();
     }
 
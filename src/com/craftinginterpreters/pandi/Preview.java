@@ -0,0 +1,103 @@
+package com.craftinginterpreters.pandi;
+
+import java.util.List;
+
+//The globals built on APIs that are still a preview in Java 21 (java.lang.foreign) or in an
+// incubator module (jdk.incubator.vector). Their classes are in the src-preview tree, which
+// is compiled with --enable-preview and only loads on a JVM started with it, everything in src
+// builds and runs without. So the globals are stand-ins that look the real ones up by name
+// (in PreviewNatives) the first time a script uses them: a script that never does runs on any
+// Java from 21 on, one that does without the flag gets an error saying what is missing.
+final class Preview {
+    private Preview() {
+    }
+
+    static void define(Environment globals) {
+        //Arrays outside the Java heap
+        globals.define("DoubleArray", new DeferredFunction("DoubleArray", 1));
+        globals.define("Bytes", new DeferredFunction("Bytes", 1));
+
+        //Vec.add(dst, a, b), Vec.sum(a) and the rest
+        globals.define("Vec", new DeferredObject("Vec"));
+
+        //lines(path) and csv(path) read a file through a memory mapping
+        globals.define("lines", new DeferredFunction("lines", 1));
+        globals.define("csv", new DeferredFunction("csv", 1));
+    }
+
+    //Passes everything on to the real global once it has been made
+    private abstract static class Deferred {
+        final String name;
+        private volatile Object target;
+
+        Deferred(String name) {
+            this.name = name;
+        }
+
+        Object target(Token token) {
+            Object target = this.target;
+            if (target == null) {
+                //Two threads may both make one, either will do
+                target = load(token, name);
+                this.target = target;
+            }
+            return target;
+        }
+
+        @Override
+        public String toString() {
+            return "<native fn " + name + ">";
+        }
+    }
+
+    private static final class DeferredFunction extends Deferred implements pandiCallable {
+        private final int arity;
+
+        DeferredFunction(String name, int arity) {
+            super(name);
+            this.arity = arity;
+        }
+
+        @Override
+        public int arity() {
+            return arity;
+        }
+
+        //A native does not know its call site, the interpreter gives the error its token
+        @Override
+        public Object call(Interpreter interpreter, List<Object> arguments) {
+            return ((pandiCallable) target(null)).call(interpreter, arguments);
+        }
+
+        @Override
+        public Object call1(Interpreter interpreter, Object a) {
+            return ((pandiCallable) target(null)).call1(interpreter, a);
+        }
+    }
+
+    private static final class DeferredObject extends Deferred implements pandiObject {
+        DeferredObject(String name) {
+            super(name);
+        }
+
+        @Override
+        public Object get(Token property) {
+            return ((pandiObject) target(property)).get(property);
+        }
+
+        @Override
+        public String toString() {
+            return "<" + name + ">";
+        }
+    }
+
+    private static Object load(Token token, String name) {
+        try {
+            return Class.forName("com.craftinginterpreters.pandi.PreviewNatives")
+                    .getDeclaredMethod("get", String.class).invoke(null, name);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            //Not compiled in, or a JVM that can not load it
+            throw new RuntimeError(token, name + " needs Java 21 run with --enable-preview.");
+        }
+    }
+}
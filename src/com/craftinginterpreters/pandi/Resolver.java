@@ -1,23 +1,31 @@
 package com.craftinginterpreters.pandi;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Stack;
 
 
 public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
-    // a private field of the interpreter.
-    private final Interpreter interpreter;
+    // The globals are resolved to slots in this table
+    private final GlobalTable globals;
+    private final ErrorReporter reporter;
     // stack of scopes:
-    // It has the lexeme of the token and a boolean value -
-    // the boolean value stores ... ??
-    private final Stack<Map<String, Boolean>> scopes = new Stack<>();
+    // It has the lexeme of the token and the local it names -
+    // the local knows its frame slot and whether it has been defined yet
+    private final Stack<Map<String, Local>> scopes = new Stack<>();
     private FunctionType currentFunction = FunctionType.NONE;
+    // The function whose body is being resolved, the top level code counts as a function too
+    private FunctionScope function = new FunctionScope(null, 0);
+    // The globals this script declares, one declared twice is redefined when it runs
+    private final Set<Slot> declaredGlobals = new HashSet<>();
 
-    // The constructor initialises the interpreter variable
-    Resolver(Interpreter interpreter) {
-        this.interpreter = interpreter;
+    Resolver(GlobalTable globals, ErrorReporter reporter) {
+        this.globals = globals;
+        this.reporter = reporter;
     }
 
     private enum FunctionType {
@@ -35,6 +43,37 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
 
     private ClassType currentClass = ClassType.NONE;
 
+    //A local variable in one of the scopes
+    private static class Local {
+        final Slot slot;
+        //false while the variable's initializer is being resolved
+        boolean defined;
+
+        Local(Slot slot, boolean defined) {
+            this.slot = slot;
+            this.defined = defined;
+        }
+    }
+
+    //Book keeping for every function that is being resolved.
+    // 'base' is the index in the scopes stack where the function's own scopes begin,
+    // anything below it belongs to an enclosing function and has to be captured.
+    // Every local of every block in the function gets its own slot in one flat frame,
+    // slots are handed back when a block ends so sibling blocks share them.
+    private static class FunctionScope {
+        final FunctionScope enclosing;
+        final int base;
+        final List<Slot> upvalues = new ArrayList<>();
+        final Map<String, Integer> upvalueIndex = new HashMap<>();
+        int locals = 0;
+        int frameSize = 0;
+
+        FunctionScope(FunctionScope enclosing, int base) {
+            this.enclosing = enclosing;
+            this.base = base;
+        }
+    }
+
     // as of now the only variables that need to be checked for static analysis are:
     // Block statements (for analyzing the scope since a new scope is introduced)
     // Function declaration (each declaration creates a new scope)
@@ -61,14 +100,14 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
         ClassType enclosingClass = currentClass;
         currentClass = ClassType.CLASS;
 
-        declare(stmt.name);
+        stmt.slot = declare(stmt.name, stmt);
 
         define(stmt.name);
 
         //Checks for superclass name equal to class name.....
         if (stmt.superclass != null &&
                 stmt.name.lexeme.equals(stmt.superclass.name.lexeme)) {
-            pandi.error(stmt.superclass.name,
+            reporter.error(stmt.superclass.name,
                     "A class can't inherit from itself.");
         }
 
@@ -81,14 +120,10 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
         //is put in the map
         if (stmt.superclass != null) {
             beginScope();
-            scopes.peek().put("super", true);
+            stmt.superSlot = addLocal("super");
         }
 
 
-        beginScope();
-
-        scopes.peek().put("this",true);
-
         for (Stmt.Function method : stmt.methods) {
             //The declaration is stored as a method
             FunctionType declaration = FunctionType.METHOD;
@@ -100,8 +135,6 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
             resolveFunction(method, declaration);
         }
 
-        endScope();
-
         // Once all the methods are resolved and checked we delete the scope of the
         // superclass too !!
         if (stmt.superclass != null) {
@@ -124,7 +157,7 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
     @Override
     public Void visitFunctionStmt(Stmt.Function stmt) {
         //Declare the name (which is in the outer scope)
-        declare(stmt.name);
+        stmt.slot = declare(stmt.name, stmt);
         //
         define(stmt.name);
         //
@@ -154,12 +187,12 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
     @Override
     public Void visitReturnStmt(Stmt.Return stmt) {
         if (currentFunction == FunctionType.NONE) {
-            pandi.error(stmt.keyword, "Cant return from top level code");
+            reporter.error(stmt.keyword, "Cant return from top level code");
         }
 
         if(stmt.value != null) {
             if (currentFunction == FunctionType.INITIALIZER) {
-                pandi.error(stmt.keyword, "Cant return a value from an initializer");
+                reporter.error(stmt.keyword, "Cant return a value from an initializer");
             }
             resolve(stmt.value);
         }
@@ -170,7 +203,7 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
     @Override
     public Void visitVarStmt(Stmt.Var stmt) {
         //Declare the variable first
-        declare(stmt.name);
+        stmt.slot = declare(stmt.name, stmt);
 
         //Interpret the value of the variable (assignment)
         if (stmt.initializer != null) {
@@ -195,7 +228,12 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
     @Override
     public Void visitAssignExpr(Expr.Assign expr) {
         resolve(expr.value);
-        resolveLocal(expr, expr.name);
+        expr.slot = resolveLocal(expr.name);
+
+        //A global that gets assigned anywhere in the program is not stable anymore
+        if (expr.slot.kind == Slot.Kind.GLOBAL) {
+            expr.slot.invalidate();
+        }
         return null;
     }
 
@@ -231,6 +269,48 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
         return null;
     }
 
+    @Override
+    public Void visitIndexExpr(Expr.Index expr) {
+        resolve(expr.object);
+        resolve(expr.index);
+        return null;
+    }
+
+    @Override
+    public Void visitIndexSetExpr(Expr.IndexSet expr) {
+        resolve(expr.value);
+        resolve(expr.object);
+        resolve(expr.index);
+        return null;
+    }
+
+
+    @Override
+    public Void visitInlineExpr(Expr.Inline expr) {
+        //The inliner only runs on code that has been resolved already
+        return null;
+    }
+
+    //The nodes the specializer creates do not show up before the resolver has run either
+    @Override
+    public Void visitCompareLocalsExpr(Expr.CompareLocals expr) {
+        return null;
+    }
+
+    @Override
+    public Void visitLocalIncrementExpr(Expr.LocalIncrement expr) {
+        return null;
+    }
+
+    @Override
+    public Void visitThisGetExpr(Expr.ThisGet expr) {
+        return null;
+    }
+
+    @Override
+    public Void visitPrintVariableStmt(Stmt.PrintVariable stmt) {
+        return null;
+    }
 
     @Override
     public Void visitLiteralExpr(Expr.Literal expr) {
@@ -248,7 +328,7 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
     @Override
     public Void visitSetExpr(Expr.Set expr) {
         resolve(expr.value);
-        resolve(expr.value);
+        resolve(expr.object);
         return null;
     }
 
@@ -256,14 +336,16 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
     public Void visitSuperExpr(Expr.Super expr) {
 
         if (currentClass == ClassType.NONE) {
-            pandi.error(expr.keyword,
+            reporter.error(expr.keyword,
                     "Can't use 'super' outside of a class.");
         } else if (currentClass != ClassType.SUBCLASS) {
-            pandi.error(expr.keyword,
+            reporter.error(expr.keyword,
                     "Can't use 'super' in a class with no superclass.");
         }
 
-        resolveLocal(expr, expr.keyword);
+        expr.slot = resolveLocal(expr.keyword);
+        //The receiver is needed as well to bind the superclass method
+        expr.thisSlot = resolveLocal("this");
 
         return null;
     }
@@ -273,12 +355,11 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
     @Override
     public Void visitThisExpr(Expr.This expr) {
         if (currentClass == ClassType.NONE) {
-            pandi.error(expr.keyword, "Can't use 'this' outside of a class");
+            reporter.error(expr.keyword, "Can't use 'this' outside of a class");
             return null;
         }
 
-
-        resolveLocal(expr, expr.keyword);
+        expr.slot = resolveLocal(expr.keyword);
         return null;
     }
 
@@ -293,11 +374,12 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
 
     @Override
     public Void visitVariableExpr(Expr.Variable expr) {
-        if (!scopes.isEmpty() && scopes.peek().get(expr.name.lexeme) == Boolean.FALSE) {
-            pandi.error(expr.name, "Can't read local variable in its own initializer");
+        if (!scopes.isEmpty() && scopes.peek().containsKey(expr.name.lexeme)
+                && !scopes.peek().get(expr.name.lexeme).defined) {
+            reporter.error(expr.name, "Can't read local variable in its own initializer");
         }
 
-        resolveLocal(expr, expr.name);
+        expr.slot = resolveLocal(expr.name);
         return null;
     }
 
@@ -311,9 +393,13 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
     private void resolveFunction(Stmt.Function function, FunctionType type) {
         FunctionType enclosingFunction = currentFunction;
         currentFunction = type;
-
+        this.function = new FunctionScope(this.function, scopes.size());
 
         beginScope();
+        //Methods get their receiver as the first local, ahead of the parameters
+        if (type == FunctionType.METHOD || type == FunctionType.INITIALIZER) {
+            addLocal("this");
+        }
         for (Token param : function.params) {
             declare(param);
             define(param);
@@ -321,6 +407,10 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
         resolve(function.body);
         endScope();
 
+        //Only the variables the body actually touched are kept by the closure
+        function.upvalues = this.function.upvalues;
+        function.frameSize = this.function.frameSize;
+        this.function = this.function.enclosing;
         currentFunction = enclosingFunction;
     }
 
@@ -338,46 +428,113 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
         expr.accept(this);
     }
 
+    //The number of slots the top level code needs for the locals of its blocks
+    int frameSize() {
+        return function.frameSize;
+    }
+
     private void beginScope() {
         // The moment a new scope is encountered, the environment is pushed onto the stack as a new hashmap
-        scopes.push(new HashMap<String, Boolean> ());
+        scopes.push(new HashMap<String, Local> ());
     }
 
     private void endScope() {
         // We can pop the environment from the stack once its done.
-        scopes.pop();
+        // Its slots are free to be reused by the next block
+        function.locals -= scopes.pop().size();
     }
 
-    private void declare(Token name) {
-        //If the stack of scope is empty then return
-        if (scopes.isEmpty()) {return;}
+    private Slot declare(Token name) {
+        //If the stack of scope is empty then it is a global and gets a global slot
+        if (scopes.isEmpty()) {return globals.slot(name.lexeme);}
 
         //Else find the innermost scope and declare the variable in it
-        Map<String, Boolean> scope = scopes.peek();
+        Map<String, Local> scope = scopes.peek();
         if (scope.containsKey(name.lexeme)) {
-            pandi.error(name,
+            reporter.error(name,
                     "Already a variable with this name in this scope maccha.");
+            return scope.get(name.lexeme).slot;
         }
 
         //and mark it as unresolved "false"
-        scope.put(name.lexeme, false);
+        Slot slot = Slot.local(name.lexeme, function.locals++);
+        function.frameSize = Math.max(function.frameSize, function.locals);
+        scope.put(name.lexeme, new Local(slot, false));
+        return slot;
+    }
+
+    //Variables, functions and classes also record their declaration, for globals this is
+    // the whole program analysis that finds the ones that are never redefined or reassigned
+    private Slot declare(Token name, Stmt declaration) {
+        Slot slot = declare(name);
+        if (slot.kind == Slot.Kind.GLOBAL) {
+            if (!declaredGlobals.add(slot)) slot.invalidate();
+            slot.declaredBy(declaration);
+        }
+        return slot;
     }
 
     private void define(Token name) {
         // First check if there are scopes in the stack
         if (scopes.isEmpty()) {return;}
 
-        // In the innermost scope, peek and put the name of the
-        // token and mark it as resolved.
-        scopes.peek().put(name.lexeme, Boolean.TRUE);
+        // In the innermost scope, peek and mark the
+        // token as resolved.
+        scopes.peek().get(name.lexeme).defined = true;
+    }
+
+    //Declares and defines one of the implicit locals ('this' and 'super')
+    private Slot addLocal(String name) {
+        Slot slot = Slot.local(name, function.locals++);
+        function.frameSize = Math.max(function.frameSize, function.locals);
+        scopes.peek().put(name, new Local(slot, true));
+        return slot;
     }
 
-    private void resolveLocal(Expr expr, Token name) {
-        for (int i = scopes.size() - 1; i >= 0; i--) {
-            if (scopes.get(i).containsKey(name.lexeme)) {
-                interpreter.resolve(expr, scopes.size() - 1 - i);
-                return;
+    private Slot resolveLocal(Token name) {
+        return resolveLocal(name.lexeme);
+    }
+
+    //Looks through the scopes of the current function first, if the name is declared
+    // in an enclosing function it becomes an upvalue, and if nobody declared it the
+    // name gets a global slot (it may well be defined later on).
+    private Slot resolveLocal(String name) {
+        for (int i = scopes.size() - 1; i >= function.base; i--) {
+            if (scopes.get(i).containsKey(name)) {
+                return scopes.get(i).get(name).slot;
             }
         }
+
+        int index = resolveUpvalue(function, name);
+        if (index == -1) return globals.slot(name);
+        return Slot.upvalue(name, index);
+    }
+
+    //Returns the index of the upvalue in the function's closure or -1 if the variable is a global.
+    // When a variable lives a few functions up, each function in between captures it too
+    // so that the closure can be handed down when the inner functions are created.
+    private int resolveUpvalue(FunctionScope function, String name) {
+        if (function.enclosing == null) return -1;
+
+        Integer existing = function.upvalueIndex.get(name);
+        if (existing != null) return existing;
+
+        //The scopes of the enclosing function are the ones right below this function's base,
+        // the capture refers to the enclosing function's frame which is running when the closure is created
+        for (int i = function.base - 1; i >= function.enclosing.base; i--) {
+            if (scopes.get(i).containsKey(name)) {
+                return addUpvalue(function, scopes.get(i).get(name).slot);
+            }
+        }
+
+        int index = resolveUpvalue(function.enclosing, name);
+        if (index == -1) return -1;
+        return addUpvalue(function, Slot.upvalue(name, index));
+    }
+
+    private int addUpvalue(FunctionScope function, Slot capture) {
+        function.upvalues.add(capture);
+        function.upvalueIndex.put(capture.name, function.upvalues.size() - 1);
+        return function.upvalues.size() - 1;
     }
 }
\ No newline at end of file
@@ -10,4 +10,10 @@ public class RuntimeError extends RuntimeException {
         this.token = token;
     }
 
-}
\ No newline at end of file
+    //For the natives, which do not know the token they were called from.
+    // The interpreter gives the error the call site's token before it goes any further
+    RuntimeError(String message) {
+        this(null, message);
+    }
+
+}
@@ -12,6 +12,7 @@ import static com.craftinginterpreters.pandi.TokenType.*;
 
 public class Scanner {
     private final String source;
+    private final ErrorReporter reporter;
     //The list of tokens is designed as an array list !
     private final List<Token> tokens = new ArrayList<>();
 
@@ -48,8 +49,9 @@ public class Scanner {
     }
 
     //Constructor to initialize the source (String for source code written)
-    public Scanner(String source) {
+    Scanner(String source, ErrorReporter reporter) {
         this.source = source;
+        this.reporter = reporter;
     }
 
     //The method actually ends up scanning the source string into tokens :)
@@ -67,6 +69,18 @@ public class Scanner {
         return tokens;
     }
 
+    //Scans only as far as the next token, for the parser of the streaming mode.
+    // Nothing is kept, the parser holds on to the tokens it still needs.
+    Token nextToken() {
+        //Whitespace and comments do not add a token, a lexeme adds at most one
+        while (tokens.isEmpty()) {
+            if (isAtEnd()) return new Token(EOF, "", null, line);
+            start = current;
+            scanToken();
+        }
+        return tokens.remove(0);
+    }
+
     //Method to scan an individual token
     private void scanToken() {
         char c = advance();
@@ -84,6 +98,12 @@ public class Scanner {
             case '}':
                 addToken(RIGHT_BRACE);
                 break;
+            case '[':
+                addToken(LEFT_BRACKET);
+                break;
+            case ']':
+                addToken(RIGHT_BRACKET);
+                break;
             case ',':
                 addToken(COMMA);
                 break;
@@ -143,7 +163,7 @@ public class Scanner {
                         advance();
                         advance();
                     } else {
-                        pandi.error(line, "Unexpected termination of comment");
+                        reporter.error(line, "Unexpected termination of comment");
                     }
 
                 } else {
@@ -180,7 +200,7 @@ public class Scanner {
                     //Note that strings are starting with "
                     identifier();
                 } else {
-                pandi.error(line, "Unexpected character."); break;}
+                reporter.error(line, "Unexpected character."); break;}
         }
     }
 
@@ -229,7 +249,7 @@ public class Scanner {
 
         //If it is at end and has not ended, then unterminated string
         if (isAtEnd()) {
-            pandi.error(line, "Unterminated string");
+            reporter.error(line, "Unterminated string");
         }
 
         //If it is not at end, and has been terminated because of ", then advance to "
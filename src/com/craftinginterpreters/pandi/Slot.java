@@ -0,0 +1,72 @@
+package com.craftinginterpreters.pandi;
+
+//The Resolver hands one of these to every variable declaration and expression, it tells the
+// interpreter where the variable lives at runtime.
+class Slot {
+    enum Kind {
+        //The variable is declared in the function that is running
+        // and sits at 'index' in the function's frame
+        LOCAL,
+        //The variable belongs to an enclosing function and was captured
+        // by the closure, it sits at 'index' in the closure's upvalue array
+        UPVALUE,
+        //Nobody declared the variable in a scope, so it is a global
+        // and sits at 'index' in the globals' values array
+        GLOBAL
+    }
+
+    final Kind kind;
+    final String name;
+    final int index;
+
+    //Only used for globals.
+    // The resolver sees the whole program before it runs, so it can tell which globals are
+    // declared once and never assigned. Those are stable: once defined they keep their value
+    // and later passes may bind a reference straight to the declaration.
+    // The slot is shared by every script of the engine, and several of them may declare the
+    // same global, like a library compiled once more for another context. Each script runs in
+    // an environment of its own, so the resolver counts declarations per script (a global
+    // declared twice in one is redefined) and the slot only remembers the latest declaration.
+    // Runtime redefinitions are caught by the Environment. Code bound to a declaration checks
+    // at runtime that the global holds it, which also covers a streamed script, whose resolver
+    // has only seen the code up to the running statement.
+    private boolean declared = false;
+    private boolean assigned = false;
+    //The function declaring the global, null if it is not declared by a function (the natives
+    // and the variables, whose initializers can be big and are not needed after they ran)
+    Stmt declaration;
+
+    private Slot(Kind kind, String name, int index) {
+        this.kind = kind;
+        this.name = name;
+        this.index = index;
+    }
+
+    static Slot local(String name, int index) {
+        return new Slot(Kind.LOCAL, name, index);
+    }
+
+    static Slot upvalue(String name, int index) {
+        return new Slot(Kind.UPVALUE, name, index);
+    }
+
+    static Slot global(String name, int index) {
+        return new Slot(Kind.GLOBAL, name, index);
+    }
+
+    void declaredBy(Stmt declaration) {
+        declared = true;
+        this.declaration = declaration instanceof Stmt.Function ? declaration : null;
+    }
+
+    //Called when the global gets assigned or redefined, this is permanent.
+    // A REPL line doing that is resolved before it runs, so nothing bound to the old
+    // value can observe the change without first checking isStable().
+    void invalidate() {
+        assigned = true;
+    }
+
+    boolean isStable() {
+        return kind == Kind.GLOBAL && declared && !assigned;
+    }
+}
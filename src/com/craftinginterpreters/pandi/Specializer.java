@@ -0,0 +1,83 @@
+package com.craftinginterpreters.pandi;
+
+//Runs last, after the inliner, and fuses a few shapes that loops and methods are full of
+// into single nodes, so the interpreter does one dispatch where it did three or four:
+//  - 'i = i + 1;' and 'i = i - 1;' on a local become a LocalIncrement,
+//  - 'a < b' (and <=, >, >=) between two locals becomes a CompareLocals,
+//  - 'this.field' becomes a ThisGet,
+//  - 'print name;' becomes a PrintVariable.
+// The fused nodes keep the tokens of the nodes they replace, so errors are still reported
+// with the same message on the same line.
+class Specializer extends AstRewriter {
+
+    @Override
+    public Stmt visitPrintStmt(Stmt.Print stmt) {
+        Stmt.Print print = (Stmt.Print) super.visitPrintStmt(stmt);
+
+        if (print.expression instanceof Expr.Variable) {
+            Expr.Variable variable = (Expr.Variable) print.expression;
+            return new Stmt.PrintVariable(variable.name, variable.slot);
+        }
+        return print;
+    }
+
+    @Override
+    public Expr visitAssignExpr(Expr.Assign expr) {
+        Expr.Assign assign = (Expr.Assign) super.visitAssignExpr(expr);
+        if (assign.slot.kind != Slot.Kind.LOCAL) return assign;
+        if (!(assign.value instanceof Expr.Binary)) return assign;
+
+        Expr.Binary binary = (Expr.Binary) assign.value;
+        TokenType type = binary.operator.type;
+        if (type != TokenType.PLUS && type != TokenType.MINUS) return assign;
+
+        //The variable being assigned has to be the left operand and a number the right one
+        if (!isLocal(binary.left, assign.slot)) return assign;
+        if (!(binary.right instanceof Expr.Literal)) return assign;
+        Object value = ((Expr.Literal) binary.right).value;
+        if (!(value instanceof Double)) return assign;
+
+        double delta = type == TokenType.PLUS ? (double) value : -(double) value;
+        return new Expr.LocalIncrement(assign.name, binary.operator, assign.slot, delta);
+    }
+
+    @Override
+    public Expr visitBinaryExpr(Expr.Binary expr) {
+        Expr.Binary binary = (Expr.Binary) super.visitBinaryExpr(expr);
+
+        switch (binary.operator.type) {
+            case GREATER:
+            case GREATER_EQUAL:
+            case LESS:
+            case LESS_EQUAL:
+                if (binary.left instanceof Expr.Variable && binary.right instanceof Expr.Variable) {
+                    Slot left = ((Expr.Variable) binary.left).slot;
+                    Slot right = ((Expr.Variable) binary.right).slot;
+                    if (left.kind == Slot.Kind.LOCAL && right.kind == Slot.Kind.LOCAL) {
+                        return new Expr.CompareLocals(binary.operator, left, right);
+                    }
+                }
+                break;
+        }
+        return binary;
+    }
+
+    @Override
+    public Expr visitGetExpr(Expr.Get expr) {
+        Expr.Get get = (Expr.Get) super.visitGetExpr(expr);
+
+        if (get.object instanceof Expr.This) {
+            Expr.This self = (Expr.This) get.object;
+            return new Expr.ThisGet(self.keyword, get.name, self.slot);
+        }
+        return get;
+    }
+
+    //Inlined bodies have their own copies of the slots, so two reads of the same local
+    // are the same kind and index rather than the same object
+    private static boolean isLocal(Expr expr, Slot slot) {
+        if (!(expr instanceof Expr.Variable)) return false;
+        Slot other = ((Expr.Variable) expr).slot;
+        return other.kind == Slot.Kind.LOCAL && other.index == slot.index;
+    }
+}
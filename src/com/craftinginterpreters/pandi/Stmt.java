@@ -2,7 +2,7 @@ package com.craftinginterpreters.pandi;
 
 import java.util.List;
 
-abstract class Stmt {
+abstract sealed class Stmt {
     interface Visitor<R> {
     R visitBlockStmt(Block stmt);
     R visitClassStmt(Class stmt);
@@ -10,11 +10,12 @@ abstract class Stmt {
     R visitFunctionStmt(Function stmt);
     R visitIfStmt(If stmt);
     R visitPrintStmt(Print stmt);
+    R visitPrintVariableStmt(PrintVariable stmt);
     R visitReturnStmt(Return stmt);
     R visitVarStmt(Var stmt);
     R visitWhileStmt(While stmt);
     }
-    static class Block extends Stmt {
+    static final class Block extends Stmt {
     Block(List<Stmt> statements) {
     this.statements = statements;
     }
@@ -26,7 +27,7 @@ abstract class Stmt {
 
     final List<Stmt> statements;
 }
-    static class Class extends Stmt {
+    static final class Class extends Stmt {
     Class(Token name, Expr.Variable superclass, List<Stmt.Function> methods) {
     this.name = name;
     this.superclass = superclass;
@@ -41,8 +42,10 @@ abstract class Stmt {
     final Token name;
     final Expr.Variable superclass;
     final List<Stmt.Function> methods;
+    Slot slot;
+    Slot superSlot;
 }
-    static class Expression extends Stmt {
+    static final class Expression extends Stmt {
     Expression(Expr expression) {
     this.expression = expression;
     }
@@ -54,7 +57,7 @@ abstract class Stmt {
 
     final Expr expression;
 }
-    static class Function extends Stmt {
+    static final class Function extends Stmt {
     Function(Token name, List<Token> params, List<Stmt> body) {
     this.name = name;
     this.params = params;
@@ -69,8 +72,11 @@ abstract class Stmt {
     final Token name;
     final List<Token> params;
     final List<Stmt> body;
+    Slot slot;
+    List<Slot> upvalues;
+    int frameSize;
 }
-    static class If extends Stmt {
+    static final class If extends Stmt {
     If(Expr condition, Stmt thenBranch, Stmt elseBranch) {
     this.condition = condition;
     this.thenBranch = thenBranch;
@@ -86,7 +92,7 @@ abstract class Stmt {
     final Stmt thenBranch;
     final Stmt elseBranch;
 }
-    static class Print extends Stmt {
+    static final class Print extends Stmt {
     Print(Expr expression) {
     this.expression = expression;
     }
@@ -98,7 +104,21 @@ abstract class Stmt {
 
     final Expr expression;
 }
-    static class Return extends Stmt {
+    static final class PrintVariable extends Stmt {
+    PrintVariable(Token name, Slot slot) {
+    this.name = name;
+    this.slot = slot;
+    }
+
+    @Override
+    <R> R accept(Visitor<R> visitor) {
+      return visitor.visitPrintVariableStmt(this);
+    }
+
+    final Token name;
+    final Slot slot;
+}
+    static final class Return extends Stmt {
     Return(Token keyword, Expr value) {
     this.keyword = keyword;
     this.value = value;
@@ -112,7 +132,7 @@ abstract class Stmt {
     final Token keyword;
     final Expr value;
 }
-    static class Var extends Stmt {
+    static final class Var extends Stmt {
     Var(Token name, Expr initializer) {
     this.name = name;
     this.initializer = initializer;
@@ -125,8 +145,9 @@ abstract class Stmt {
 
     final Token name;
     final Expr initializer;
+    Slot slot;
 }
-    static class While extends Stmt {
+    static final class While extends Stmt {
     While(Expr condition, Stmt body) {
     this.condition = condition;
     this.body = body;
@@ -0,0 +1,67 @@
+package com.craftinginterpreters.pandi;
+
+import java.io.PrintWriter;
+
+//The same interpreter, but the nodes are dispatched with a pattern matching switch
+// instead of the accept/visit double dispatch.
+// Expr and Stmt are sealed so the compiler checks that every node type is covered, and
+// the JIT sees one type switch in place of a megamorphic accept call at every site.
+// Pick it with -Dpandi.dispatch=switch, DispatchBenchmark compares the two.
+class SwitchInterpreter extends Interpreter {
+
+    SwitchInterpreter() {
+    }
+
+    SwitchInterpreter(Environment globals, PrintWriter out) {
+        super(globals, out);
+    }
+
+    private SwitchInterpreter(SwitchInterpreter parent) {
+        super(parent);
+    }
+
+    @Override
+    Interpreter fork() {
+        return new SwitchInterpreter(this);
+    }
+
+    @Override
+    Object evaluate(Expr expr) {
+        return switch (expr) {
+            case Expr.Binary binary -> visitBinaryExpr(binary);
+            case Expr.Variable variable -> visitVariableExpr(variable);
+            case Expr.Literal literal -> literal.value;
+            case Expr.Call call -> visitCallExpr(call);
+            case Expr.Inline inline -> visitInlineExpr(inline);
+            case Expr.Assign assign -> visitAssignExpr(assign);
+            case Expr.Get get -> visitGetExpr(get);
+            case Expr.Set set -> visitSetExpr(set);
+            case Expr.Index index -> visitIndexExpr(index);
+            case Expr.IndexSet set -> visitIndexSetExpr(set);
+            case Expr.Logical logical -> visitLogicalExpr(logical);
+            case Expr.Unary unary -> visitUnaryExpr(unary);
+            case Expr.Grouping grouping -> evaluate(grouping.expression);
+            case Expr.This self -> visitThisExpr(self);
+            case Expr.Super sup -> visitSuperExpr(sup);
+            case Expr.LocalIncrement increment -> visitLocalIncrementExpr(increment);
+            case Expr.CompareLocals compare -> visitCompareLocalsExpr(compare);
+            case Expr.ThisGet get -> visitThisGetExpr(get);
+        };
+    }
+
+    @Override
+    void execute(Stmt stmt) {
+        switch (stmt) {
+            case Stmt.Expression expression -> evaluate(expression.expression);
+            case Stmt.If ifStmt -> visitIfStmt(ifStmt);
+            case Stmt.Block block -> visitBlockStmt(block);
+            case Stmt.While whileStmt -> visitWhileStmt(whileStmt);
+            case Stmt.Return returnStmt -> visitReturnStmt(returnStmt);
+            case Stmt.Var var -> visitVarStmt(var);
+            case Stmt.Print print -> visitPrintStmt(print);
+            case Stmt.PrintVariable print -> visitPrintVariableStmt(print);
+            case Stmt.Function function -> visitFunctionStmt(function);
+            case Stmt.Class klass -> visitClassStmt(klass);
+        }
+    }
+}
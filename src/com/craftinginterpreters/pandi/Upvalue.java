@@ -0,0 +1,13 @@
+package com.craftinginterpreters.pandi;
+
+//A box around a captured variable.
+// The moment a closure captures a local, the local's value is moved into one of these
+// and both the enclosing function and the closure share the same box, so an assignment
+// on either side is seen by the other.
+class Upvalue {
+    Object value;
+
+    Upvalue(Object value) {
+        this.value = value;
+    }
+}
@@ -1,28 +1,34 @@
 package com.craftinginterpreters.pandi;
 
 import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 
 
 public class pandi {
     //Field for interpreter
-    private static final Interpreter interpreter = new Interpreter();
-    //Public field which is used by the pandi class to check for error handling
-    static boolean hadError = false;
-    //field to set the runtime error
-    static boolean hadRuntimeError = false;
+    private static final Interpreter interpreter = newInterpreter();
+    //-Dpandi.stream=true runs a script file one top level declaration at a time
+    private static final boolean STREAM = Boolean.getBoolean("pandi.stream");
+    //How many chars of standard input -n reads at a time, -Dpandi.input.buffer to change it
+    private static final int INPUT_BUFFER = Integer.getInteger("pandi.input.buffer", 1 << 20);
 
 
 
     public static void main(String[] args) throws IOException {
         //This is a check to ensure that only one argument (if you have a file to load and run source code)
-        if (args.length > 1) {
-            System.err.print("Usage: pandi[script] - incorrect Args");
+        //'pandi -n script' runs the script over the lines of standard input
+        if (args.length == 2 && args[0].equals("-n")) {
+            runRecords(args[1]);
+        }  else if (args.length > 1) {
+            System.err.print("Usage: pandi [-n] [script] - incorrect Args");
             // Exit with error number 64 that is incorrect number of arguments
             System.exit(64);
         }  else if (args.length == 1) {
@@ -43,14 +49,96 @@ public class pandi {
         //Read all binary data in the byte array
         byte[] bytes = Files.readAllBytes(Paths.get(path));
 
-        run(new String(bytes, Charset.defaultCharset()));
+        String source = new String(bytes, Charset.defaultCharset());
+        ErrorReporter reporter = reporter(interpreter);
+        try {
+            if (STREAM) {
+                stream(interpreter, source, reporter);
+            } else {
+                run(interpreter, source, reporter);
+            }
+        } finally {
+            //Write out what the script printed before exiting, also when it blew the stack
+            interpreter.flush();
+        }
 
         //Indicate error while exiting
-        if (hadError) System.exit(65);
+        if (reporter.hadError) System.exit(65);
 
         //System exit 70 is "internal software error"
-        if (hadRuntimeError) System.exit(70);
+        if (reporter.hadRuntimeError) System.exit(70);
+
+    }
+
+    //pandi -n script: like awk, the script declares the functions begin(), record(line) and
+    // end() (it can leave any of them out), runs once and then every line of standard input
+    // goes through record(), between a call to begin() and one to end().
+    public static void runRecords(String path) throws IOException {
+        byte[] bytes = Files.readAllBytes(Paths.get(path));
+
+        String source = new String(bytes, Charset.defaultCharset());
+        ErrorReporter reporter = reporter(interpreter);
+        try {
+            run(interpreter, source, reporter);
+
+            if (!reporter.hadError && !reporter.hadRuntimeError) {
+                BufferedReader input = new BufferedReader(new InputStreamReader(
+                        new FileInputStream(FileDescriptor.in), Charset.defaultCharset()), INPUT_BUFFER);
+                try {
+                    records(interpreter, input);
+                } catch (RuntimeError error) {
+                    reporter.runtimeError(error);
+                }
+            }
+        } finally {
+            interpreter.flush();
+        }
 
+        if (reporter.hadError) System.exit(65);
+        if (reporter.hadRuntimeError) System.exit(70);
+    }
+
+    static void records(Interpreter interpreter, BufferedReader input) throws IOException {
+        pandiCallable begin = handler(interpreter, "begin", 0);
+        pandiCallable record = handler(interpreter, "record", 1);
+        pandiCallable end = handler(interpreter, "end", 0);
+
+        if (begin != null) begin.call0(interpreter);
+
+        if (record instanceof pandiFunction) {
+            //Every record gets the same frame: a local is set again by its declaration before
+            // it can be read and one that a closure captured gets a fresh box, so nothing of
+            // one record is seen by the next. The frame of a bound method keeps its receiver
+            // in the slot before the line
+            pandiFunction function = (pandiFunction) record;
+            Object[] frame = function.newFrame();
+            int slot = function.firstParam();
+            for (String line = input.readLine(); line != null; line = input.readLine()) {
+                frame[slot] = line;
+                function.invoke(interpreter, frame);
+            }
+        } else if (record != null) {
+            for (String line = input.readLine(); line != null; line = input.readLine()) {
+                record.call1(interpreter, line);
+            }
+        }
+
+        if (end != null) end.call0(interpreter);
+    }
+
+    //The global function with that name, null if the script did not declare it
+    private static pandiCallable handler(Interpreter interpreter, String name, int arity) {
+        Object value = interpreter.globals.find(name);
+        if (value == null) return null;
+
+        if (!(value instanceof pandiCallable)) {
+            throw new RuntimeError("'" + name + "' must be a function.");
+        }
+        if (((pandiCallable) value).arity() != arity) {
+            throw new RuntimeError("'" + name + "' must take " + arity
+                    + (arity == 1 ? " argument." : " arguments."));
+        }
+        return (pandiCallable) value;
     }
 
     //Runs the language one prompt at a time !
@@ -65,6 +153,8 @@ public class pandi {
         //Infinite for loop
         // The conditions are left empty
         for (;;) {
+            //The output of the last line comes before the next prompt
+            interpreter.flush();
             System.out.print("^._.^: ");
             //Read a line from the System in
             String line = brry.readLine();
@@ -72,69 +162,80 @@ public class pandi {
             if (line == null) {
                 break;
             }
-            run (line);
-
-            //In case the user made an error -> after the run command turn hadError to true
-            hadError = false;
+            //In case the user made an error -> the next line starts with a fresh reporter
+            run(line);
         }
     }
 
 
+    static Interpreter newInterpreter() {
+        Environment globals = new Environment();
+        Natives.define(globals);
+        return Interpreter.newInterpreter(globals, Interpreter.standardOutput());
+    }
+
+    //The errors of the command line are printed as they come, after whatever the
+    // interpreter has printed so far
+    static ErrorReporter reporter(Interpreter interpreter) {
+        return new ErrorReporter() {
+            @Override
+            void print(String message) {
+                interpreter.flush();
+                System.err.println(message);
+            }
+        };
+    }
+
     //This is a main function that performs the tokenization and lexical analysis
     //for the code
     public static void run(String source) {
-        Scanner scanny = new Scanner(source);
+        run(interpreter, source, reporter(interpreter));
+    }
+
+    static void run(Interpreter interpreter, String source, ErrorReporter reporter) {
+        Scanner scanny = new Scanner(source, reporter);
         List<Token> tokens = scanny.scanTokens();
 
-        Parser parser = new Parser(tokens);
+        Parser parser = new Parser(tokens, reporter);
         List<Stmt> statements = parser.parse();
 
-        if (hadError) return;
-
-        Resolver resolver = new Resolver(interpreter);
-        resolver.resolve(statements);
+        if (reporter.hadError) return;
 
-        //Stop if there is a resolution error
-        if (hadError) return;
+        GlobalTable table = interpreter.globals.table;
+        PandiScript script = PandiScript.compile(statements, new Resolver(table, reporter), table,
+                reporter);
+        if (script == null) return;
 
         //Use the interpreter to interpret the expression
-        interpreter.interpret(statements);
+        interpreter.interpret(script, reporter);
 
 //        System.out.println(new AstPrinter().print(expression));
     }
 
-    //The error handling method in pandi will point out the specific line
-    // where the user has encountered an error
-    public static void error(int line, String message) {
-        report (line, "" , message);
-    }
-
-    //The error reporting class for Runtime errors
-    static void runtimeError(RuntimeError error) {
-        //The moment we typed super in the RuntimeError class
-        // it saved the message that we passed.
-        // This message can then be called by the .getMessage() method
-        // These are java inbuilt methods
-        System.err.println(error.getMessage() + "\n[line " + error.token.line + "]");
-        hadRuntimeError = true;
-    }
-
-    //Helper function for the error reporting
-    public static void report(int line, String where, String message) {
-        System.err.println ("[line " + line + "] Error" + where + ": " + message + " :(");
-        hadError = true;
-    }
-
-    //This is a different error function for reporting errors during the parsing:
-    // It is a wrapper to the report function
-    static void error(Token token, String message) {
-        //Check line position
-        if (token.type == TokenType.EOF) {
-            report (token.line," at end", message);
-        } else {
-            // Report the line and the particular lexeme so caught.
-            report(token.line, " at '" + token.lexeme + "'", message);
+    //Scans, parses, resolves and runs one top level declaration at a time, so output shows up as
+    // soon as the first statement ran and the tree of a statement that has run can be
+    // collected (unless a closure or class it declared is still holding on to it).
+    // Unlike run() a syntax error only stops the script once the code before it has run.
+    static void stream(Interpreter interpreter, String source, ErrorReporter reporter) {
+        //The parser asks the scanner for one token at a time, so the script never sits in
+        // memory as a list of tokens either
+        Parser parser = new Parser(new Scanner(source, reporter), reporter);
+
+        //The one resolver sees every declaration, the globals it declares stay resolved
+        GlobalTable table = interpreter.globals.table;
+        Resolver resolver = new Resolver(table, reporter);
+        while (parser.hasNext()) {
+            List<Stmt> statements = new ArrayList<>(1);
+            statements.add(parser.next());
+
+            if (reporter.hadError) return;
+
+            PandiScript script = PandiScript.compile(statements, resolver, table, reporter);
+            if (script == null) return;
+
+            interpreter.interpret(script, reporter);
+            if (reporter.hadRuntimeError) return;
         }
     }
 
-}
\ No newline at end of file
+}
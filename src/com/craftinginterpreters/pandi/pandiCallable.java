@@ -1,14 +1,41 @@
 package com.craftinginterpreters.pandi;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 //This is the interface that every function has to implement to achieve callability
 interface pandiCallable {
     //This field is to keep a track of all the arguments that are expected by a given function
+    // (negative for a native that takes any number of them, like select)
     int arity();
 
     //The job of this method is to return the value that the callee produces
     // That is to evaluate the results of the callee !!
     Object call(Interpreter interpreter, List<Object> arguments);
 
+    //The interpreter calls one of these depending on how many arguments the call site passes,
+    // so the common calls do not need a list to carry their arguments.
+    // A callable that cares about speed overrides them, the rest get the list version.
+    default Object call0(Interpreter interpreter) {
+        return call(interpreter, Collections.emptyList());
+    }
+
+    default Object call1(Interpreter interpreter, Object a) {
+        return call(interpreter, Collections.singletonList(a));
+    }
+
+    default Object call2(Interpreter interpreter, Object a, Object b) {
+        return call(interpreter, Arrays.asList(a, b));
+    }
+
+    default Object call3(Interpreter interpreter, Object a, Object b, Object c) {
+        return call(interpreter, Arrays.asList(a, b, c));
+    }
+
+    //For calls with more arguments than that
+    default Object call(Interpreter interpreter, Object[] arguments) {
+        return call(interpreter, Arrays.asList(arguments));
+    }
+
 }
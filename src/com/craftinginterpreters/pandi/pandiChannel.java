@@ -0,0 +1,199 @@
+package com.craftinginterpreters.pandi;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+//What Channel(capacity) returns, for passing values between tasks instead of sharing instances.
+//  ch.send(value)  waits while a bounded channel is full
+//  ch.receive()    waits for a value, nil once the channel is closed and empty
+//  ch.close()      no more sends, the receivers still get what is left
+//  select(a, b...) waits on several channels, see select()
+// A channel is a queue behind one lock. Waiting is done on the lock's conditions (and with
+// LockSupport in select), which park a virtual thread and free its carrier, nothing spins.
+class pandiChannel implements pandiObject {
+    //ArrayDeque does not take null, nil goes in as this. Not as the channel itself, a channel
+    // is a value that may well be sent over another one (or itself)
+    private static final Object NIL = new Object();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final ArrayDeque<Object> buffer = new ArrayDeque<>();
+    //Integer.MAX_VALUE for an unbounded channel
+    private final int capacity;
+    private boolean closed = false;
+
+    //The threads waiting in select() on this channel, woken up by send() and close()
+    private final List<Thread> selectors = new CopyOnWriteArrayList<>();
+
+    private final pandiNative send = new pandiNative("send", 1, (interpreter, arguments) -> {
+        send(arguments.get(0));
+        return null;
+    });
+    private final pandiNative receive = new pandiNative("receive", 0,
+            (interpreter, arguments) -> receive());
+    private final pandiNative close = new pandiNative("close", 0, (interpreter, arguments) -> {
+        close();
+        return null;
+    });
+
+    pandiChannel(int capacity) {
+        this.capacity = capacity;
+    }
+
+    void send(Object value) {
+        lock.lock();
+        try {
+            while (!closed && buffer.size() == capacity) {
+                notFull.awaitUninterruptibly();
+            }
+            if (closed) throw new RuntimeError("Can't send on a closed channel.");
+
+            buffer.add(value == null ? NIL : value);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        wakeSelectors();
+    }
+
+    Object receive() {
+        lock.lock();
+        try {
+            while (buffer.isEmpty() && !closed) {
+                notEmpty.awaitUninterruptibly();
+            }
+            return take();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void close() {
+        lock.lock();
+        try {
+            closed = true;
+            //Everybody waiting has to look again
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        wakeSelectors();
+    }
+
+    //Takes a value if there is one, for select()
+    // Returns null if there is nothing yet and the channel itself once it is closed and empty
+    private Object poll() {
+        lock.lock();
+        try {
+            if (buffer.isEmpty()) return closed ? this : null;
+            return new Received(this, take());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Called with the lock held
+    private Object take() {
+        if (buffer.isEmpty()) return null;
+        Object value = buffer.poll();
+        notFull.signal();
+        return value == NIL ? null : value;
+    }
+
+    private void wakeSelectors() {
+        for (Thread thread : selectors) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    //Waits until one of the channels has a value and takes it, the result tells which channel
+    // it came from: 'var r = select(a, b); r.channel, r.value'.
+    // Channels that are closed and empty are skipped, nil once all of them are.
+    // The channels are tried in order, so an earlier channel wins when several are ready.
+    static Object select(List<Object> arguments) {
+        pandiChannel[] channels = new pandiChannel[arguments.size()];
+        for (int i = 0; i < channels.length; i++) {
+            if (!(arguments.get(i) instanceof pandiChannel)) {
+                throw new RuntimeError("Can only select on channels.");
+            }
+            channels[i] = (pandiChannel) arguments.get(i);
+        }
+
+        Thread self = Thread.currentThread();
+        boolean registered = false;
+        try {
+            for (;;) {
+                int done = 0;
+                for (pandiChannel channel : channels) {
+                    Object polled = channel.poll();
+                    if (polled instanceof Received) return polled;
+                    if (polled == channel) done++;
+                }
+                if (done == channels.length) return null;
+
+                //Register and then look again before parking, a send that came in between
+                // the two has either been seen or unparks this thread
+                if (!registered) {
+                    for (pandiChannel channel : channels) {
+                        channel.selectors.add(self);
+                    }
+                    registered = true;
+                    continue;
+                }
+                LockSupport.park(channels);
+            }
+        } finally {
+            if (registered) {
+                for (pandiChannel channel : channels) {
+                    channel.selectors.remove(self);
+                }
+            }
+        }
+    }
+
+    @Override
+    public Object get(Token name) {
+        switch (name.lexeme) {
+            case "send": return send;
+            case "receive": return receive;
+            case "close": return close;
+        }
+        throw new RuntimeError(name, "Undefined property '" + name.lexeme + "'.");
+    }
+
+    @Override
+    public String toString() {
+        return "<channel>";
+    }
+
+    //What select() returns
+    private static final class Received implements pandiObject {
+        private final pandiChannel channel;
+        private final Object value;
+
+        Received(pandiChannel channel, Object value) {
+            this.channel = channel;
+            this.value = value;
+        }
+
+        @Override
+        public Object get(Token name) {
+            switch (name.lexeme) {
+                case "channel": return channel;
+                case "value": return value;
+            }
+            throw new RuntimeError(name, "Undefined property '" + name.lexeme + "'.");
+        }
+
+        @Override
+        public String toString() {
+            return "<received>";
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.craftinginterpreters.pandi;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -7,25 +8,42 @@ public class pandiClass implements pandiCallable {
     final pandiClass superclass;
     //The name of the class
     final String name;
+    //Every method the class responds to, the inherited ones included.
+    // The table is flattened when the class is created, so finding a method is a single
+    // lookup no matter how deep the hierarchy is.
     private final Map<String, pandiFunction> methods;
+    //init is looked up on every instantiation, so it is resolved once up front
+    private final pandiFunction initializer;
+    private final int arity;
 
     pandiClass(String name, pandiClass superclass ,Map<String, pandiFunction> methods) {
         this.superclass = superclass;
         this.name = name;
-        this.methods = methods;
-    }
-
-    pandiFunction findMethod(String name) {
-        if (methods.containsKey(name)) {
-            return methods.get(name);
-        }
 
         //This code is used for inheriting methods !
+        // The superclass' table already holds everything it inherited, the class' own
+        // methods then override those
+        Map<String, pandiFunction> flattened = new HashMap<>();
         if (superclass != null) {
-            return superclass.findMethod(name);
+            flattened.putAll(superclass.methods);
         }
+        flattened.putAll(methods);
+        this.methods = flattened;
+
+        this.initializer = flattened.get("init");
+        this.arity = initializer == null ? 0 : initializer.arity();
+    }
 
-        return null;
+    pandiFunction findMethod(String name) {
+        return methods.get(name);
+    }
+
+    //None of the methods captured a variable (a class declared inside a function may have)
+    boolean isSelfContained() {
+        for (pandiFunction method : methods.values()) {
+            if (!method.isSelfContained()) return false;
+        }
+        return true;
     }
 
 
@@ -37,9 +55,7 @@ public class pandiClass implements pandiCallable {
 
     @Override
     public int arity() {
-        pandiFunction initializer = findMethod("init");
-        if (initializer == null) {return 0;}
-        return initializer.arity();
+        return arity;
     }
 
     @Override
@@ -47,7 +63,6 @@ public class pandiClass implements pandiCallable {
         //When the class is called, a new instance of the class is created
         pandiInstance instance = new pandiInstance(this);
 
-        pandiFunction initializer = findMethod("init");
         if (initializer != null) {
             //If you find the initializer method declared in the body, then
             // call the interpreter and arguments.
@@ -57,4 +72,63 @@ public class pandiClass implements pandiCallable {
 
         return instance;
     }
+
+    //The specialized calls hand the arguments straight to the initializer's frame,
+    // the initializer is invoked with the new instance as receiver instead of being bound
+    @Override
+    public Object call0(Interpreter interpreter) {
+        pandiInstance instance = new pandiInstance(this);
+        if (initializer != null) initializer.invoke(interpreter, initializer.frameFor(instance), instance);
+        return instance;
+    }
+
+    //A class without init takes no arguments, the callers check the arity but an embedder
+    // calling through the Object[] version may not have
+    private pandiInstance withoutInitializer(int count) {
+        if (count != 0) throw new RuntimeError("Expected 0 arguments but got " + count + ".");
+        return new pandiInstance(this);
+    }
+
+    @Override
+    public Object call1(Interpreter interpreter, Object a) {
+        if (initializer == null) return withoutInitializer(1);
+        pandiInstance instance = new pandiInstance(this);
+        Object[] frame = initializer.frameFor(instance);
+        frame[1] = a;
+        initializer.invoke(interpreter, frame, instance);
+        return instance;
+    }
+
+    @Override
+    public Object call2(Interpreter interpreter, Object a, Object b) {
+        if (initializer == null) return withoutInitializer(2);
+        pandiInstance instance = new pandiInstance(this);
+        Object[] frame = initializer.frameFor(instance);
+        frame[1] = a;
+        frame[2] = b;
+        initializer.invoke(interpreter, frame, instance);
+        return instance;
+    }
+
+    @Override
+    public Object call3(Interpreter interpreter, Object a, Object b, Object c) {
+        if (initializer == null) return withoutInitializer(3);
+        pandiInstance instance = new pandiInstance(this);
+        Object[] frame = initializer.frameFor(instance);
+        frame[1] = a;
+        frame[2] = b;
+        frame[3] = c;
+        initializer.invoke(interpreter, frame, instance);
+        return instance;
+    }
+
+    @Override
+    public Object call(Interpreter interpreter, Object[] arguments) {
+        if (initializer == null) return withoutInitializer(arguments.length);
+        pandiInstance instance = new pandiInstance(this);
+        Object[] frame = initializer.frameFor(instance);
+        System.arraycopy(arguments, 0, frame, 1, arguments.length);
+        initializer.invoke(interpreter, frame, instance);
+        return instance;
+    }
 }
\ No newline at end of file
@@ -6,22 +6,39 @@ import java.util.List;
 public class pandiFunction implements pandiCallable {
     private final Stmt.Function declaration;
     //This is used to hold onto the variables declared in an enclosing environment
-    // This is the environment that is active when the function is DECLARED and not when it is called
-    private final Environment closure;
+    // Only the variables that the body actually uses are captured (the resolver works these out)
+    // and they are captured when the function is DECLARED and not when it is called
+    private final Upvalue[] upvalues;
+
+    //The instance that 'this' refers to once a method is bound
+    private final pandiInstance receiver;
 
     private final boolean isInitializer;
 
-    pandiFunction(Stmt.Function declaration, Environment closure, boolean isInitializer) {
+    pandiFunction(Stmt.Function declaration, Upvalue[] upvalues, boolean isInitializer) {
+        this(declaration, upvalues, isInitializer, null);
+    }
 
-        this.closure = closure;
+    private pandiFunction(Stmt.Function declaration, Upvalue[] upvalues, boolean isInitializer,
+                          pandiInstance receiver) {
+        this.upvalues = upvalues;
         this.declaration = declaration;
         this.isInitializer = isInitializer;
+        this.receiver = receiver;
+    }
+
+    //Used by inlined call sites to check they still call the function they copied
+    boolean isDeclaredBy(Stmt.Function declaration) {
+        return this.declaration == declaration && receiver == null;
+    }
+
+    //Holds on to nothing that can change: no captured variables and no receiver
+    boolean isSelfContained() {
+        return upvalues.length == 0 && receiver == null;
     }
 
     pandiFunction bind(pandiInstance instance) {
-        Environment environment = new Environment(closure);
-        environment.define("this", instance);
-        return new pandiFunction(declaration, environment, isInitializer);
+        return new pandiFunction(declaration, upvalues, isInitializer, instance);
     }
 
 
@@ -33,27 +50,97 @@ public class pandiFunction implements pandiCallable {
 
     @Override
     public Object call(Interpreter interpreter, List<Object> arguments) {
-        //The function's environment is tagged to the environment that calls it when it was declared.
-        Environment environment = new Environment(closure);
+        Object[] frame = newFrame();
+        int first = firstParam();
 
         for (int i = 0; i < declaration.params.size(); i++) {
-            //In that environment define the name of the parameters and the arguments.
-            environment.define(declaration.params.get(i).lexeme, arguments.get(i));
+            //The parameters take the slots right after it
+            frame[first + i] = arguments.get(i);
         }
 
+        return invoke(interpreter, frame);
+    }
+
+    //The specialized calls put the arguments straight into the frame slots of the parameters
+    @Override
+    public Object call0(Interpreter interpreter) {
+        return invoke(interpreter, newFrame());
+    }
+
+    @Override
+    public Object call1(Interpreter interpreter, Object a) {
+        Object[] frame = newFrame();
+        frame[firstParam()] = a;
+        return invoke(interpreter, frame);
+    }
+
+    @Override
+    public Object call2(Interpreter interpreter, Object a, Object b) {
+        Object[] frame = newFrame();
+        int first = firstParam();
+        frame[first] = a;
+        frame[first + 1] = b;
+        return invoke(interpreter, frame);
+    }
+
+    @Override
+    public Object call3(Interpreter interpreter, Object a, Object b, Object c) {
+        Object[] frame = newFrame();
+        int first = firstParam();
+        frame[first] = a;
+        frame[first + 1] = b;
+        frame[first + 2] = c;
+        return invoke(interpreter, frame);
+    }
+
+    @Override
+    public Object call(Interpreter interpreter, Object[] arguments) {
+        Object[] frame = newFrame();
+        System.arraycopy(arguments, 0, frame, firstParam(), arguments.length);
+        return invoke(interpreter, frame);
+    }
+
+    //The function gets a fresh frame big enough for all of its locals, everything it
+    // needs from the enclosing functions comes in through the upvalues.
+    Object[] newFrame() {
+        return frameFor(receiver);
+    }
+
+    //A call site that already knows the receiver of a method does not have to bind it:
+    // it asks for the frame, puts the arguments in the slots after the receiver and invokes it.
+    Object[] frameFor(pandiInstance receiver) {
+        Object[] frame = new Object[declaration.frameSize];
+
+        //A bound method sees its receiver as 'this' in the first slot
+        if (receiver != null) {
+            frame[0] = receiver;
+        }
+        return frame;
+    }
+
+    //The slot of the first parameter in the frame, after 'this' for a bound method
+    int firstParam() {
+        return receiver != null ? 1 : 0;
+    }
+
+    Object invoke(Interpreter interpreter, Object[] frame) {
+        return invoke(interpreter, frame, receiver);
+    }
+
+    Object invoke(Interpreter interpreter, Object[] frame, pandiInstance receiver) {
         //The try catch block actually helps jumping out of the function calls if it hits a return value
         try {
             //The block (the function) is executed in the given environment.
-            interpreter.executeBlock(declaration.body, environment);
+            interpreter.executeBlock(declaration.body, frame, upvalues);
         } catch (Return returnValue) {
             if (isInitializer) {
-                return closure.getAt(0, "this");
+                return receiver;
             }
 
             return returnValue.value;
         }
 
-        if (isInitializer) return closure.getAt(0, "this");
+        if (isInitializer) return receiver;
 
 
         //This is in case the function does not have a return statement, it returns null by default.
@@ -0,0 +1,9 @@
+package com.craftinginterpreters.pandi;
+
+//A native value that 'value[index]' and 'value[index] = v' work on, like lists and maps.
+// The errors are reported at the bracket, a native method calling these passes null for it.
+interface pandiIndexable {
+    Object get(Token bracket, Object index);
+
+    void set(Token bracket, Object index, Object value);
+}
@@ -0,0 +1,244 @@
+package com.craftinginterpreters.pandi;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+//What List(a, b, ...) returns, a growable list of values.
+//  list[i], list[i] = v   the value at index i (from 0)
+//  list.length            how many values it holds
+//  list.get(i), list.set(i, v)
+//  list.push(v)           adds v at the end
+//  list.pop()             removes the last value and returns it
+//  list.slice(from, to)   a new list with the values from index 'from' up to 'to'
+//  list.sort()            sorts numbers or strings in place, list.sort(fn) sorts by
+//                         fn(a, b), which returns a number below 0 when a goes first
+// A list that only ever holds numbers keeps them in a double[] rather than as a Double
+// object each, the first value of another kind moves everything over to an Object[].
+class pandiList implements pandiObject, pandiIndexable {
+    //Exactly one of the two is in use: numbers while every value is a number, items after that
+    private double[] numbers;
+    private Object[] items;
+    private int size;
+
+    private final pandiNative get = new pandiNative("get", 1,
+            (interpreter, arguments) -> get(null, arguments.get(0)));
+    private final pandiNative set = new pandiNative("set", 2, (interpreter, arguments) -> {
+        set(null, arguments.get(0), arguments.get(1));
+        return arguments.get(1);
+    });
+    private final pandiNative push = new pandiNative("push", 1, (interpreter, arguments) -> {
+        add(arguments.get(0));
+        return null;
+    });
+    private final pandiNative pop = new pandiNative("pop", 0, (interpreter, arguments) -> pop());
+    private final pandiNative slice = new pandiNative("slice", 2, (interpreter, arguments) -> slice(
+            index(null, arguments.get(0), size), index(null, arguments.get(1), size)));
+    //sort() or sort(fn)
+    private final pandiNative sort = new pandiNative("sort", -1, (interpreter, arguments) -> {
+        if (arguments.isEmpty()) {
+            sort();
+        } else if (arguments.size() == 1 && arguments.get(0) instanceof pandiCallable
+                && ((pandiCallable) arguments.get(0)).arity() == 2) {
+            sort(interpreter, (pandiCallable) arguments.get(0));
+        } else {
+            throw new RuntimeError("Expected nothing or a function that takes 2 arguments.");
+        }
+        return null;
+    });
+
+    pandiList(Object[] values) {
+        this.size = values.length;
+        for (Object value : values) {
+            if (!(value instanceof Double)) {
+                this.items = values;
+                return;
+            }
+        }
+
+        this.numbers = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            numbers[i] = (double) values[i];
+        }
+    }
+
+    private pandiList(double[] numbers) {
+        this.numbers = numbers;
+        this.size = numbers.length;
+    }
+
+    int size() {
+        return size;
+    }
+
+    //The numbers of a list that holds nothing else (the first size() of them), null otherwise
+    double[] numbers() {
+        return numbers;
+    }
+
+    Object get(int index) {
+        if (numbers != null) return numbers[index];
+        return items[index];
+    }
+
+    void set(int index, Object value) {
+        if (numbers != null) {
+            if (value instanceof Double) {
+                numbers[index] = (double) value;
+                return;
+            }
+            box();
+        }
+        items[index] = value;
+    }
+
+    void add(Object value) {
+        if (numbers != null) {
+            if (value instanceof Double) {
+                if (size == numbers.length) numbers = Arrays.copyOf(numbers, grow());
+                numbers[size++] = (double) value;
+                return;
+            }
+            box();
+        }
+        if (size == items.length) items = Arrays.copyOf(items, grow());
+        items[size++] = value;
+    }
+
+    private int grow() {
+        return Math.max(8, size * 2);
+    }
+
+    //From here on the list holds values of any kind
+    private void box() {
+        Object[] boxed = new Object[Math.max(8, numbers.length)];
+        for (int i = 0; i < size; i++) {
+            boxed[i] = numbers[i];
+        }
+        items = boxed;
+        numbers = null;
+    }
+
+    //Back to a double[] if every value is a number again, a list that held something else
+    // once may not anymore
+    private void unbox() {
+        for (int i = 0; i < size; i++) {
+            if (!(items[i] instanceof Double)) return;
+        }
+
+        double[] unboxed = new double[Math.max(8, items.length)];
+        for (int i = 0; i < size; i++) {
+            unboxed[i] = (double) items[i];
+        }
+        numbers = unboxed;
+        items = null;
+    }
+
+    //A copy of the values, for the natives that work on all of them at once
+    Object[] toArray() {
+        if (numbers == null) return Arrays.copyOf(items, size);
+
+        Object[] values = new Object[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = numbers[i];
+        }
+        return values;
+    }
+
+    @Override
+    public Object get(Token bracket, Object index) {
+        return get(index(bracket, index, size - 1));
+    }
+
+    @Override
+    public void set(Token bracket, Object index, Object value) {
+        set(index(bracket, index, size - 1), value);
+    }
+
+    Object pop() {
+        if (size == 0) throw new RuntimeError("Can't pop from an empty list.");
+
+        Object value = get(size - 1);
+        size--;
+        //Let go of the value
+        if (items != null) items[size] = null;
+        return value;
+    }
+
+    pandiList slice(int from, int to) {
+        if (from > to) throw new RuntimeError("Slice start is past its end.");
+        if (numbers != null) return new pandiList(Arrays.copyOfRange(numbers, from, to));
+        return new pandiList(Arrays.copyOfRange(items, from, to));
+    }
+
+    //Numbers in numeric order or strings in alphabetical order, anything else needs a function
+    void sort() {
+        if (numbers == null) unbox();
+        if (numbers != null) {
+            Arrays.sort(numbers, 0, size);
+            return;
+        }
+
+        for (int i = 0; i < size; i++) {
+            if (!(items[i] instanceof String)) {
+                throw new RuntimeError("Can only sort numbers or strings without a function.");
+            }
+        }
+        Arrays.sort(items, 0, size);
+    }
+
+    void sort(Interpreter interpreter, pandiCallable function) {
+        Comparator<Object> order = (a, b) -> {
+            Object result = function.call2(interpreter, a, b);
+            if (!(result instanceof Double)) {
+                throw new RuntimeError("The sort function must return a number.");
+            }
+            return Double.compare((double) result, 0.0);
+        };
+
+        Object[] values = toArray();
+        try {
+            Arrays.sort(values, order);
+        } catch (IllegalArgumentException e) {
+            //TimSort noticed that the function does not order the values consistently
+            throw new RuntimeError("The sort function does not give a consistent order.");
+        }
+        for (int i = 0; i < size; i++) {
+            set(i, values[i]);
+        }
+    }
+
+    //A pandi number that has to be a whole number from 0 to the last index given
+    private static int index(Token token, Object index, int last) {
+        if (!(index instanceof Double)) throw new RuntimeError(token, "List index must be a number.");
+
+        double number = (double) index;
+        if (number != Math.floor(number) || number < 0 || number > last) {
+            throw new RuntimeError(token, "List index out of range.");
+        }
+        return (int) number;
+    }
+
+    @Override
+    public Object get(Token name) {
+        switch (name.lexeme) {
+            case "length": return (double) size;
+            case "get": return get;
+            case "set": return set;
+            case "push": return push;
+            case "pop": return pop;
+            case "slice": return slice;
+            case "sort": return sort;
+        }
+        throw new RuntimeError(name, "Undefined property '" + name.lexeme + "'.");
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) text.append(", ");
+            text.append(Interpreter.stringify(get(i)));
+        }
+        return text.append(']').toString();
+    }
+}
@@ -0,0 +1,276 @@
+package com.craftinginterpreters.pandi;
+
+//What Map() returns, a hash table from strings, numbers and booleans to values.
+//  map[key], map[key] = v   the value for a key (nil if there is none)
+//  map.length               how many keys it holds
+//  map.get(key), map.set(key, v), map.has(key)
+//  map.remove(key)          removes the key and returns its value
+//  map.keys(), map.values() lists of them
+//  map.forEach(fn)          calls fn(key, value) for every key
+// Keys and values come out in no particular order, but keys() and values() in the same one.
+//
+// The table is open addressing with linear probing: a key goes in the first free slot from
+// where its hash points, a lookup walks the slots from there until it finds the key or a free
+// slot. Keys are kept by kind in flat arrays so a probe reads a byte and compares a key without
+// going through equals() and hashCode() of an Object: a number key is stored as its bits in a
+// long[] (no Double object is kept) and a boolean key is only its kind.
+class pandiMap implements pandiObject, pandiIndexable {
+    private static final byte EMPTY = 0;
+    private static final byte STRING = 1;
+    private static final byte NUMBER = 2;
+    private static final byte TRUE = 3;
+    private static final byte FALSE = 4;
+
+    private byte[] kinds = new byte[8];
+    //The key of a slot is in one of these, depending on its kind
+    private String[] strings = new String[8];
+    private long[] numbers = new long[8];
+    private Object[] values = new Object[8];
+    private int size;
+
+    private final pandiNative get = new pandiNative("get", 1,
+            (interpreter, arguments) -> get(null, arguments.get(0)));
+    private final pandiNative set = new pandiNative("set", 2, (interpreter, arguments) -> {
+        set(null, arguments.get(0), arguments.get(1));
+        return arguments.get(1);
+    });
+    private final pandiNative has = new pandiNative("has", 1,
+            (interpreter, arguments) -> has(null, arguments.get(0)));
+    private final pandiNative remove = new pandiNative("remove", 1,
+            (interpreter, arguments) -> remove(null, arguments.get(0)));
+    private final pandiNative keys = new pandiNative("keys", 0,
+            (interpreter, arguments) -> new pandiList(keys()));
+    //map.values(), the name values is taken by the array
+    private final pandiNative valuesNative = new pandiNative("values", 0,
+            (interpreter, arguments) -> new pandiList(values()));
+    private final pandiNative forEach = new pandiNative("forEach", 1, (interpreter, arguments) -> {
+        Object function = arguments.get(0);
+        if (!(function instanceof pandiCallable) || ((pandiCallable) function).arity() != 2) {
+            throw new RuntimeError("Expected a function that takes 2 arguments.");
+        }
+        forEach(interpreter, (pandiCallable) function);
+        return null;
+    });
+
+    int size() {
+        return size;
+    }
+
+    @Override
+    public Object get(Token token, Object key) {
+        int slot = find(token, key);
+        return slot >= 0 ? values[slot] : null;
+    }
+
+    @Override
+    public void set(Token token, Object key, Object value) {
+        int slot = find(token, key);
+        if (slot >= 0) {
+            values[slot] = value;
+            return;
+        }
+
+        //A table at most two thirds full keeps the probe sequences short
+        if ((size + 1) * 3 > kinds.length * 2) {
+            resize();
+            slot = find(token, key);
+        }
+        slot = ~slot;
+        store(slot, kindOf(key), key);
+        values[slot] = value;
+        size++;
+    }
+
+    boolean has(Token token, Object key) {
+        return find(token, key) >= 0;
+    }
+
+    Object remove(Token token, Object key) {
+        int slot = find(token, key);
+        if (slot < 0) return null;
+
+        Object value = values[slot];
+        delete(slot);
+        size--;
+        return value;
+    }
+
+    //The slot holding the key, or ~slot of the free slot where it would go
+    private int find(Token token, Object key) {
+        int mask = kinds.length - 1;
+
+        if (key instanceof String) {
+            String string = (String) key;
+            for (int slot = mix(string.hashCode()) & mask; ; slot = (slot + 1) & mask) {
+                byte kind = kinds[slot];
+                if (kind == EMPTY) return ~slot;
+                if (kind == STRING && strings[slot].equals(string)) return slot;
+            }
+        }
+
+        if (key instanceof Double) {
+            //Bits, so the keys are the same numbers that == says are equal
+            long bits = Double.doubleToLongBits((double) key);
+            for (int slot = mix(Long.hashCode(bits)) & mask; ; slot = (slot + 1) & mask) {
+                byte kind = kinds[slot];
+                if (kind == EMPTY) return ~slot;
+                if (kind == NUMBER && numbers[slot] == bits) return slot;
+            }
+        }
+
+        if (key instanceof Boolean) {
+            byte wanted = (boolean) key ? TRUE : FALSE;
+            for (int slot = mix(wanted) & mask; ; slot = (slot + 1) & mask) {
+                byte kind = kinds[slot];
+                if (kind == EMPTY) return ~slot;
+                if (kind == wanted) return slot;
+            }
+        }
+
+        throw new RuntimeError(token, "Map keys must be strings, numbers or booleans.");
+    }
+
+    private static byte kindOf(Object key) {
+        if (key instanceof String) return STRING;
+        if (key instanceof Double) return NUMBER;
+        return (boolean) key ? TRUE : FALSE;
+    }
+
+    private void store(int slot, byte kind, Object key) {
+        kinds[slot] = kind;
+        if (kind == STRING) strings[slot] = (String) key;
+        if (kind == NUMBER) numbers[slot] = Double.doubleToLongBits((double) key);
+    }
+
+    //Where the probe sequence of the key in the slot starts
+    private int home(int slot) {
+        return hash(kinds[slot], strings[slot], numbers[slot]) & (kinds.length - 1);
+    }
+
+    //The same hashes find() starts its probes from
+    private static int hash(byte kind, String string, long number) {
+        switch (kind) {
+            case STRING: return mix(string.hashCode());
+            case NUMBER: return mix(Long.hashCode(number));
+            default: return mix(kind);
+        }
+    }
+
+    //Spreads the hash over the low bits that pick the slot, String.hashCode() of similar
+    // keys and the bits of whole numbers differ mostly in a few bits (murmur3's finalizer)
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        return hash ^ (hash >>> 16);
+    }
+
+    //Linear probing can not just empty the slot, that would cut the probe sequences going
+    // through it short. The keys after it that would be found from the emptied slot move
+    // back into it, which leaves the table as if the removed key had never been there.
+    private void delete(int slot) {
+        int mask = kinds.length - 1;
+        int hole = slot;
+        for (int next = (hole + 1) & mask; kinds[next] != EMPTY; next = (next + 1) & mask) {
+            //The key in 'next' may move to the hole if its home is not between the two
+            if (((next - home(next)) & mask) >= ((next - hole) & mask)) {
+                kinds[hole] = kinds[next];
+                strings[hole] = strings[next];
+                numbers[hole] = numbers[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        kinds[hole] = EMPTY;
+        strings[hole] = null;
+        values[hole] = null;
+    }
+
+    private void resize() {
+        byte[] oldKinds = kinds;
+        String[] oldStrings = strings;
+        long[] oldNumbers = numbers;
+        Object[] oldValues = values;
+
+        int capacity = oldKinds.length * 2;
+        kinds = new byte[capacity];
+        strings = new String[capacity];
+        numbers = new long[capacity];
+        values = new Object[capacity];
+
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKinds.length; i++) {
+            if (oldKinds[i] == EMPTY) continue;
+
+            int slot = hash(oldKinds[i], oldStrings[i], oldNumbers[i]) & mask;
+            while (kinds[slot] != EMPTY) slot = (slot + 1) & mask;
+            kinds[slot] = oldKinds[i];
+            strings[slot] = oldStrings[i];
+            numbers[slot] = oldNumbers[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    private Object keyAt(int slot) {
+        switch (kinds[slot]) {
+            case STRING: return strings[slot];
+            case NUMBER: return Double.longBitsToDouble(numbers[slot]);
+            default: return kinds[slot] == TRUE;
+        }
+    }
+
+    Object[] keys() {
+        Object[] keys = new Object[size];
+        int count = 0;
+        for (int slot = 0; slot < kinds.length; slot++) {
+            if (kinds[slot] != EMPTY) keys[count++] = keyAt(slot);
+        }
+        return keys;
+    }
+
+    Object[] values() {
+        Object[] result = new Object[size];
+        int count = 0;
+        for (int slot = 0; slot < kinds.length; slot++) {
+            if (kinds[slot] != EMPTY) result[count++] = values[slot];
+        }
+        return result;
+    }
+
+    //fn may change the map, so it gets called over a copy of what is in it
+    private void forEach(Interpreter interpreter, pandiCallable function) {
+        Object[] keys = keys();
+        Object[] values = values();
+        for (int i = 0; i < keys.length; i++) {
+            function.call2(interpreter, keys[i], values[i]);
+        }
+    }
+
+    @Override
+    public Object get(Token name) {
+        switch (name.lexeme) {
+            case "length": return (double) size;
+            case "get": return get;
+            case "set": return set;
+            case "has": return has;
+            case "remove": return remove;
+            case "keys": return keys;
+            case "values": return valuesNative;
+            case "forEach": return forEach;
+        }
+        throw new RuntimeError(name, "Undefined property '" + name.lexeme + "'.");
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("{");
+        for (int slot = 0; slot < kinds.length; slot++) {
+            if (kinds[slot] == EMPTY) continue;
+            if (text.length() > 1) text.append(", ");
+            text.append(Interpreter.stringify(keyAt(slot))).append(": ")
+                    .append(Interpreter.stringify(values[slot]));
+        }
+        return text.append('}').toString();
+    }
+}
@@ -0,0 +1,38 @@
+package com.craftinginterpreters.pandi;
+
+import java.util.List;
+
+//A function written in Java, for the natives that are simple enough to be a lambda
+// (the methods of the native objects mostly).
+// A native does not know where it was called from, so it reports a problem with
+// new RuntimeError(message) and the interpreter blames the call site.
+class pandiNative implements pandiCallable {
+    interface Body {
+        Object call(Interpreter interpreter, List<Object> arguments);
+    }
+
+    private final String name;
+    private final int arity;
+    private final Body body;
+
+    pandiNative(String name, int arity, Body body) {
+        this.name = name;
+        this.arity = arity;
+        this.body = body;
+    }
+
+    @Override
+    public int arity() {
+        return arity;
+    }
+
+    @Override
+    public Object call(Interpreter interpreter, List<Object> arguments) {
+        return body.call(interpreter, arguments);
+    }
+
+    @Override
+    public String toString() {
+        return "<native fn " + name + ">";
+    }
+}
@@ -0,0 +1,9 @@
+package com.craftinginterpreters.pandi;
+
+//A value implemented in Java that scripts use like an instance, through its properties.
+// e.g. the handle spawn() returns answers to 'handle.join()'.
+// Unlike an instance it has no fields that a script could set.
+interface pandiObject {
+    //The property called 'name', its methods are returned as natives bound to the object
+    Object get(Token name);
+}
@@ -0,0 +1,49 @@
+package com.craftinginterpreters.pandi;
+
+//What spawn(fn) returns: fn runs on a virtual thread in an execution context of its own,
+// 'task.join()' waits for it and gives back what it returned.
+// A runtime error in the task does not get reported by the task, join() raises it in the
+// thread that joins (with the line it happened on), like a return value would come back.
+// Anything else the task fails with, like a StackOverflowError, is raised as a runtime error.
+class pandiTask implements pandiObject {
+    private final Thread thread;
+    //Written by the task's thread, join() reads them after Thread.join() so they are visible
+    private Object result;
+    private Throwable error;
+
+    pandiTask(Interpreter context, pandiCallable function) {
+        this.thread = Thread.ofVirtual().start(() -> {
+            try {
+                result = function.call0(context);
+            } catch (Throwable error) {
+                this.error = error;
+            }
+        });
+    }
+
+    Object join() {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeError("Interrupted while joining a task.");
+        }
+
+        if (error instanceof RuntimeError) throw (RuntimeError) error;
+        if (error != null) throw new RuntimeError("The task failed with " + error + ".");
+        return result;
+    }
+
+    @Override
+    public Object get(Token name) {
+        if (name.lexeme.equals("join")) {
+            return new pandiNative("join", 0, (interpreter, arguments) -> join());
+        }
+        throw new RuntimeError(name, "Undefined property '" + name.lexeme + "'.");
+    }
+
+    @Override
+    public String toString() {
+        return "<task>";
+    }
+}
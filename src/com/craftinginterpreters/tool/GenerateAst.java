@@ -17,33 +17,42 @@ public class GenerateAst {
 
         String outputDir = args[0];
 
+        //CompareLocals, LocalIncrement, ThisGet and PrintVariable are never parsed, the
+        // Specializer creates them by fusing common shapes of the other nodes into one.
         defineAst(outputDir, "Expr", Arrays.asList(
-           "Assign   : Token name, Expr value",
+           "Assign   : Token name, Expr value | Slot slot",
            "Binary   : Expr left, Token operator, Expr right",
            "Call     : Expr callee, Token paren, List<Expr> arguments",
+           "CompareLocals  : Token operator, Slot left, Slot right",
            "Get      : Expr object, Token name",
            "Grouping : Expr expression",
+           "Index    : Expr object, Token bracket, Expr index",
+           "IndexSet : Expr object, Token bracket, Expr index, Expr value",
+           "Inline   : Expr.Call call, Stmt.Function function, int base, Expr body",
            "Literal  : Object value",
+           "LocalIncrement : Token name, Token operator, Slot slot, double delta",
            "Logical  : Expr left, Token operator, Expr right",
            "Set      : Expr object, Token name, Expr value",
-           "Super    : Token keyword, Token method",
-           "This     : Token keyword",
+           "Super    : Token keyword, Token method | Slot slot, Slot thisSlot, MethodCache cache",
+           "This     : Token keyword | Slot slot",
+           "ThisGet  : Token keyword, Token name, Slot slot",
            "Unary    : Token operator, Expr right",
-           "Variable : Token name"
+           "Variable : Token name | Slot slot"
         ));
 
         //For parsing statements.
         defineAst(outputDir, "Stmt", Arrays.asList(
                 "Block      : List<Stmt> statements",
                 "Class      : Token name, Expr.Variable superclass," +
-                        " List<Stmt.Function> methods",
+                        " List<Stmt.Function> methods | Slot slot, Slot superSlot",
                 "Expression : Expr expression",
                 "Function   : Token name, List<Token> params," +
-                        " List<Stmt> body",
+                        " List<Stmt> body | Slot slot, List<Slot> upvalues, int frameSize",
                 "If         : Expr condition, Stmt thenBranch," + " Stmt elseBranch",
                 "Print      : Expr expression ",
+                "PrintVariable : Token name, Slot slot",
                 "Return     : Token keyword, Expr value",
-                "Var        : Token name, Expr initializer",
+                "Var        : Token name, Expr initializer | Slot slot",
                 "While      : Expr condition, Stmt body"
         ));
 
@@ -61,7 +70,9 @@ public class GenerateAst {
         writer.println();
         writer.println("import java.util.List;");
         writer.println();
-        writer.println("abstract class " + baseName + " {");
+        //Sealed, so that a switch over the node types is checked for being exhaustive.
+        // The node classes are all in this file, which makes them the permitted subclasses.
+        writer.println("abstract sealed class " + baseName + " {");
 
         defineVisitor(writer, baseName, types);
 
@@ -74,8 +85,15 @@ public class GenerateAst {
             //The fields are everything to the right of the colon
             String fields = type.split(":")[1].trim();
 
+            //Anything after a '|' is not passed to the constructor, these fields are
+            // filled in later by the Resolver
+            String resolved = null;
+            if (fields.contains("|")) {
+                resolved = fields.split("\\|")[1].trim();
+                fields = fields.split("\\|")[0].trim();
+            }
 
-            defineType(writer, baseName, className, fields);
+            defineType(writer, baseName, className, fields, resolved);
         }
 
         writer.println();
@@ -99,9 +117,10 @@ public class GenerateAst {
     }
 
 
-    private static void defineType ( PrintWriter writer, String baseName, String className, String fieldList){
+    private static void defineType ( PrintWriter writer, String baseName, String className,
+                                     String fieldList, String resolvedList){
 
-        writer.println("    static class " + className + " extends " + baseName + " {");
+        writer.println("    static final class " + className + " extends " + baseName + " {");
 
         //constructor
         writer.println("    " + className + "(" + fieldList + ") {");
@@ -130,6 +149,13 @@ public class GenerateAst {
             writer.println("    final " + field + ";");
         }
 
+        //The resolver fields are left mutable
+        if (resolvedList != null) {
+            for (String field : resolvedList.split(", ")) {
+                writer.println("    " + field + ";");
+            }
+        }
+
         writer.println("}");
     }
 }
\ No newline at end of file